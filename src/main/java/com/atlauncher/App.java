@@ -154,6 +154,15 @@ public class App {
      */
     public static boolean skipHashChecking = false;
 
+    /**
+     * This forces every downloaded file to be fully hashed when checking if it needs
+     * to be downloaded, rather than trusting files that were previously verified and
+     * haven't changed since. It can be enabled with the below command line argument.
+     * <p/>
+     * --deep-verify
+     */
+    public static boolean deepVerify = false;
+
     /**
      * This forces the working directory for the launcher. It can be changed with
      * the below command line argument.
@@ -825,6 +834,7 @@ public class App {
         parser.accepts("disable-error-reporting").withOptionalArg().ofType(Boolean.class);
         parser.accepts("skip-integration").withOptionalArg().ofType(Boolean.class);
         parser.accepts("skip-hash-checking").withOptionalArg().ofType(Boolean.class);
+        parser.accepts("deep-verify").withOptionalArg().ofType(Boolean.class);
         parser.accepts("force-offline-mode").withOptionalArg().ofType(Boolean.class);
         parser.accepts("working-dir").withRequiredArg().ofType(String.class);
         parser.accepts("no-launcher-update").withOptionalArg().ofType(Boolean.class);
@@ -896,5 +906,10 @@ public class App {
         if (skipHashChecking) {
             LogManager.debug("Skipping hash checking! Don't ask for support with this enabled!");
         }
+
+        deepVerify = options.has("deep-verify");
+        if (deepVerify) {
+            LogManager.debug("Deep verifying all downloaded files!");
+        }
     }
 }
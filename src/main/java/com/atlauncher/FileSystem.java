@@ -17,6 +17,7 @@
  */
 package com.atlauncher;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
@@ -28,7 +29,8 @@ import com.atlauncher.data.Constants;
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.utils.FileUtils;
 import com.atlauncher.utils.OS;
-import com.atlauncher.utils.Utils;
+import com.atlauncher.utils.Trash;
+import com.atlauncher.workers.InstallJournal;
 
 public final class FileSystem {
     public static final Path USER_DOWNLOADS = Paths.get(System.getProperty("user.home"), "Downloads");
@@ -36,6 +38,8 @@ public final class FileSystem {
     public static final Path LOGS = BASE_DIR.resolve("logs");
     public static final Path BACKUPS = BASE_DIR.resolve("backups");
     public static final Path CACHE = BASE_DIR.resolve("cache");
+    // CACHE belongs to OkHttp, which can clear it at any time, so the launcher keeps its own caches separately
+    public static final Path LAUNCHER_CACHE = BASE_DIR.resolve("launchercache");
     public static final Path LOADERS = BASE_DIR.resolve("loaders");
     public static final Path RUNTIMES = BASE_DIR.resolve("runtimes");
 
@@ -61,8 +65,15 @@ public final class FileSystem {
     public static final Path SERVERS = BASE_DIR.resolve("servers");
     public static final Path TEMP = BASE_DIR.resolve("temp");
     public static final Path FAILED_DOWNLOADS = BASE_DIR.resolve("faileddownloads");
+    public static final Path DOWNLOAD_OBJECTS = DOWNLOADS.resolve("objects");
+    public static final Path BACKUP_STORE = BACKUPS.resolve("store");
+    public static final Path TRASH = BASE_DIR.resolve(".trash");
 
     public static final Path CHECKING_SERVERS_JSON = CONFIGS.resolve("checkingservers.json");
+    public static final Path VERIFIED_FILES_INDEX = LAUNCHER_CACHE.resolve("verifiedfiles.json");
+    public static final Path CURSE_METADATA = LAUNCHER_CACHE.resolve("curse");
+    public static final Path PROCESSOR_CACHE = LAUNCHER_CACHE.resolve("processors");
+    public static final Path SERVER_LAUNCH_JAR_CACHE = LAUNCHER_CACHE.resolve("fabric-server-launch");
     public static final Path USER_DATA = CONFIGS.resolve("userdata");
     public static final Path LAUNCHER_CONFIG = CONFIGS.resolve(Constants.LAUNCHER_NAME + ".conf");
     public static final Path SETTINGS = CONFIGS.resolve(Constants.LAUNCHER_NAME + ".json");
@@ -81,6 +92,9 @@ public final class FileSystem {
         renameDirectories();
 
         createDirectories();
+
+        // finish deleting anything that was still in the trash when the launcher was last closed
+        Trash.empty();
     }
 
     private static void deleteDirectories() throws IOException {
@@ -99,10 +113,24 @@ public final class FileSystem {
         if (Files.exists(CONFIGS.resolve("instancesdata"))) {
             FileUtils.delete(CONFIGS.resolve("instancesdata"));
         }
+
     }
 
     private static void cleanTempDirectory() {
-        Utils.deleteContents(TEMP.toFile());
+        File[] files = TEMP.toFile().listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            // keep anything from an install that didn't finish so it can be picked back up
+            if (file.isDirectory() && InstallJournal.isResumable(file.toPath())) {
+                continue;
+            }
+
+            Trash.put(file.toPath());
+        }
     }
 
     private static void renameDirectories() throws IOException {
@@ -154,6 +182,7 @@ public final class FileSystem {
     private static void createDirectories() {
         FileUtils.createDirectory(BACKUPS);
         FileUtils.createDirectory(CACHE);
+        FileUtils.createDirectory(LAUNCHER_CACHE);
         FileUtils.createDirectory(INSTANCES);
         FileUtils.createDirectory(LIBRARIES);
         FileUtils.createDirectory(LOADERS);
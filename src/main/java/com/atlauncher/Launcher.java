@@ -57,6 +57,7 @@ import com.atlauncher.network.DownloadPool;
 import com.atlauncher.utils.ATLauncherAPIUtils;
 import com.atlauncher.utils.Java;
 import com.atlauncher.utils.OS;
+import com.atlauncher.workers.StageGraph;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
@@ -107,25 +108,21 @@ public class Launcher {
 
         checkForLauncherUpdate();
 
-        addExecutableBitToTools();
-
-        NewsManager.loadNews(); // Load the news
-
-        MinecraftManager.loadMinecraftVersions(); // Load info about the different Minecraft versions
-
-        PackManager.loadPacks(); // Load the Packs available in the Launcher
-
-        PackManager.loadUsers(); // Load the Testers and Allowed Players for the packs
-
-        InstanceManager.loadInstances(); // Load the users installed Instances
-
-        ServerManager.loadServers(); // Load the users installed servers
-
-        AccountManager.loadAccounts(); // Load the saved Accounts
-
-        CheckingServersManager.loadCheckingServers(); // Load the saved servers we're checking with the tool
-
-        PackManager.removeUnusedImages(); // remove unused pack images
+        // the rest only reads files on disk, so load anything that doesn't need something else loaded first at the
+        // same time, such as instances which need the packs loaded to find their pack. one bad file shouldn't stop
+        // anything that doesn't need it from loading, so each failed stage is logged and the rest carry on
+        try {
+            new StageGraph("Startup", () -> false).continueAfterFailures().add("tools", this::addExecutableBitToTools)
+                    .add("news", NewsManager::loadNews).add("minecraft", MinecraftManager::loadMinecraftVersions)
+                    .add("packs", PackManager::loadPacks).add("users", PackManager::loadUsers, "packs")
+                    .add("instances", InstanceManager::loadInstances, "packs")
+                    .add("servers", ServerManager::loadServers).add("accounts", AccountManager::loadAccounts)
+                    .add("checkingServers", CheckingServersManager::loadCheckingServers)
+                    .add("packImages", PackManager::removeUnusedImages, "packs").run();
+        } catch (Exception e) {
+            // each failed stage has already been logged
+            LogManager.error("Error loading launcher data");
+        }
 
         if (OS.isWindows() && !OS.is64Bit() && OS.isWindows64Bit()) {
             LogManager.warn("You're using 32 bit Java on a 64 bit Windows install!");
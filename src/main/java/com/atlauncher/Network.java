@@ -24,6 +24,7 @@ import java.util.logging.Logger;
 import com.atlauncher.data.Constants;
 import com.atlauncher.interfaces.NetworkProgressable;
 import com.atlauncher.listener.ProgressListener;
+import com.atlauncher.network.ConcurrencyLimitingInterceptor;
 import com.atlauncher.network.DebugLoggingInterceptor;
 import com.atlauncher.network.ErrorReportingInterceptor;
 import com.atlauncher.network.UserAgentInterceptor;
@@ -37,8 +38,11 @@ import okhttp3.Response;
 public final class Network {
     public static Cache CACHE = new Cache(FileSystem.CACHE.toFile(), 100 * 1024 * 1024); // 100MB cache
 
-    public static OkHttpClient CLIENT = new OkHttpClient.Builder().addNetworkInterceptor(new UserAgentInterceptor())
-            .addInterceptor(new DebugLoggingInterceptor()).addNetworkInterceptor(new ErrorReportingInterceptor())
+    public static OkHttpClient CLIENT = new OkHttpClient.Builder()
+            .addInterceptor(new ConcurrencyLimitingInterceptor())
+            .addNetworkInterceptor(ConcurrencyLimitingInterceptor.NETWORK)
+            .addNetworkInterceptor(new UserAgentInterceptor()).addInterceptor(new DebugLoggingInterceptor())
+            .addNetworkInterceptor(new ErrorReportingInterceptor())
             .connectTimeout(App.settings.connectionTimeout, TimeUnit.SECONDS)
             .readTimeout(App.settings.connectionTimeout, TimeUnit.SECONDS)
             .writeTimeout(App.settings.connectionTimeout, TimeUnit.SECONDS).build();
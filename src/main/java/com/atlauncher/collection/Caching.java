@@ -17,9 +17,14 @@
  */
 package com.atlauncher.collection;
 
+import java.util.AbstractMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 public final class Caching {
     public static final int MAX_SIZE = Integer
@@ -34,6 +39,41 @@ public final class Caching {
         V put(K key, V value);
 
         int size();
+
+        Stats stats();
+    }
+
+    /**
+     * Counts of how a cache has been used, for diagnostics.
+     */
+    public static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long hitCount() {
+            return this.hits.sum();
+        }
+
+        public long missCount() {
+            return this.misses.sum();
+        }
+
+        public long evictionCount() {
+            return this.evictions.sum();
+        }
+
+        public double hitRate() {
+            long requests = this.hitCount() + this.missCount();
+
+            return requests == 0 ? 1.0 : (double) this.hitCount() / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, hitRate=%.2f", this.hitCount(),
+                    this.missCount(), this.evictionCount(), this.hitRate());
+        }
     }
 
     public static <K, V> Cache<K, V> newLRU() {
@@ -44,23 +84,367 @@ public final class Caching {
         return new LRUCache<>(size);
     }
 
+    /**
+     * Creates a thread safe cache which decides what to keep by how often things are
+     * used as well as how recently, so a burst of one off lookups doesn't push out
+     * entries that are used all the time.
+     */
+    public static <K, V> Cache<K, V> newTinyLFU() {
+        return new TinyLFUCache<>(MAX_SIZE);
+    }
+
+    public static <K, V> Cache<K, V> newTinyLFU(int size) {
+        return new TinyLFUCache<>(size);
+    }
+
     @SuppressWarnings("serial")
     private static final class LRUCache<K, V> extends LinkedHashMap<K, V> implements Cache<K, V> {
         private final int cap;
+        private final Stats stats = new Stats();
 
         private LRUCache(int cap) {
             super(cap + 1, 0.75F, true);
             this.cap = cap;
         }
 
+        @Override
+        public V get(Object key) {
+            V value = super.get(key);
+
+            if (value == null) {
+                this.stats.misses.increment();
+            } else {
+                this.stats.hits.increment();
+            }
+
+            return value;
+        }
+
         @Override
         protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-            return this.size() > this.cap;
+            if (this.size() > this.cap) {
+                this.stats.evictions.increment();
+                return true;
+            }
+
+            return false;
         }
 
         @Override
         public Iterator<Map.Entry<K, V>> iterator() {
             return this.entrySet().iterator();
         }
+
+        @Override
+        public Stats stats() {
+            return this.stats;
+        }
+    }
+
+    /**
+     * A W-TinyLFU cache. New entries go into a small LRU window, and when they fall
+     * out of it they only make it into the main cache if they've been used more often
+     * than what they would push out, going by a count-min sketch of how often every
+     * key has been looked up. The main cache is split into a probation section for
+     * entries only used once since getting in, and a protected section for entries
+     * used again after that.
+     *
+     * Lookups go straight to a ConcurrentHashMap. Keeping the eviction order up to
+     * date needs a lock, which lookups skip if another thread already has it, so
+     * under contention some lookups just aren't counted.
+     */
+    private static final class TinyLFUCache<K, V> implements Cache<K, V> {
+        private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Stats stats = new Stats();
+
+        private final int maximum;
+        private final int maxWindow;
+        private final int maxProtected;
+        private final FrequencySketch sketch;
+
+        private final NodeList<K, V> window = new NodeList<>();
+        private final NodeList<K, V> probation = new NodeList<>();
+        private final NodeList<K, V> protectedList = new NodeList<>();
+
+        private TinyLFUCache(int maximum) {
+            this.maximum = Math.max(1, maximum);
+            this.maxWindow = Math.max(1, this.maximum / 100);
+            this.maxProtected = (int) ((this.maximum - this.maxWindow) * 0.8);
+            this.sketch = new FrequencySketch(this.maximum);
+        }
+
+        @Override
+        public V get(K key) {
+            if (key == null) {
+                return null;
+            }
+
+            Node<K, V> node = this.data.get(key);
+
+            if (node == null) {
+                this.stats.misses.increment();
+            } else {
+                this.stats.hits.increment();
+            }
+
+            if (this.lock.tryLock()) {
+                try {
+                    this.sketch.increment(key);
+
+                    if (node != null) {
+                        this.onAccess(node);
+                    }
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+
+            return node == null ? null : node.value;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (key == null || value == null) {
+                return null;
+            }
+
+            this.lock.lock();
+            try {
+                Node<K, V> node = this.data.get(key);
+                this.sketch.increment(key);
+
+                if (node != null) {
+                    V old = node.value;
+                    node.value = value;
+                    this.onAccess(node);
+                    return old;
+                }
+
+                node = new Node<>(key, value);
+                this.data.put(key, node);
+                this.window.addLast(node);
+                this.evict();
+
+                return null;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private void onAccess(Node<K, V> node) {
+            if (node.list == null) {
+                // already evicted by another thread
+                return;
+            }
+
+            if (node.list == this.probation) {
+                this.probation.remove(node);
+                this.protectedList.addLast(node);
+
+                if (this.protectedList.size > this.maxProtected) {
+                    Node<K, V> demoted = this.protectedList.first;
+                    this.protectedList.remove(demoted);
+                    this.probation.addLast(demoted);
+                }
+            } else {
+                node.list.moveToLast(node);
+            }
+        }
+
+        private void evict() {
+            // entries leaving the window get a chance in probation
+            while (this.window.size > this.maxWindow) {
+                Node<K, V> node = this.window.first;
+                this.window.remove(node);
+                this.probation.addLast(node);
+            }
+
+            while (this.data.size() > this.maximum) {
+                Node<K, V> victim = this.probation.first;
+                Node<K, V> candidate = this.probation.last;
+
+                if (victim == null) {
+                    victim = this.protectedList.first != null ? this.protectedList.first : this.window.first;
+                } else if (victim != candidate
+                        && this.sketch.frequency(candidate.key) <= this.sketch.frequency(victim.key)) {
+                    // the newcomer isn't used more than what it would replace, so it doesn't get in
+                    victim = candidate;
+                }
+
+                victim.list.remove(victim);
+                this.data.remove(victim.key, victim);
+                this.stats.evictions.increment();
+            }
+        }
+
+        @Override
+        public int size() {
+            return this.data.size();
+        }
+
+        @Override
+        public Stats stats() {
+            return this.stats;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return this.data.values().stream()
+                    .map(node -> (Map.Entry<K, V>) new AbstractMap.SimpleImmutableEntry<>(node.key, node.value))
+                    .collect(Collectors.toList()).iterator();
+        }
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+
+        // guarded by the cache's lock
+        private NodeList<K, V> list;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes, ordered from least to most recently used.
+     */
+    private static final class NodeList<K, V> {
+        private Node<K, V> first;
+        private Node<K, V> last;
+        private int size;
+
+        private void addLast(Node<K, V> node) {
+            node.list = this;
+            node.previous = this.last;
+            node.next = null;
+
+            if (this.last == null) {
+                this.first = node;
+            } else {
+                this.last.next = node;
+            }
+
+            this.last = node;
+            this.size++;
+        }
+
+        private void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                this.first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+
+            if (node.next == null) {
+                this.last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+
+            node.list = null;
+            node.previous = null;
+            node.next = null;
+            this.size--;
+        }
+
+        private void moveToLast(Node<K, V> node) {
+            if (node != this.last) {
+                this.remove(node);
+                this.addLast(node);
+            }
+        }
+    }
+
+    /**
+     * A count-min sketch of how often keys have been used, using 4 bit counters. Once
+     * enough has been counted, every counter is halved so that things which used to be
+     * popular don't stay that way forever.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int size = 0;
+
+        private FrequencySketch(int maximum) {
+            int length = Integer.highestOneBit(Math.max(16, maximum - 1) << 1);
+
+            this.table = new long[length];
+            this.sampleSize = 10 * maximum;
+        }
+
+        private int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+
+            for (int i = 0; i < 4; i++) {
+                int index = this.indexOf(hash, i);
+                int count = (int) ((this.table[index] >>> ((start + i) << 2)) & 0xFL);
+                frequency = Math.min(frequency, count);
+            }
+
+            return frequency;
+        }
+
+        private void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+
+            for (int i = 0; i < 4; i++) {
+                added |= this.incrementAt(this.indexOf(hash, i), start + i);
+            }
+
+            if (added && ++this.size == this.sampleSize) {
+                this.reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int counter) {
+            int offset = counter << 2;
+            long mask = 0xFL << offset;
+
+            if ((this.table[index] & mask) != mask) {
+                this.table[index] += 1L << offset;
+                return true;
+            }
+
+            return false;
+        }
+
+        private int indexOf(int hash, int i) {
+            long index = (hash + SEEDS[i]) * SEEDS[i];
+            index += index >>> 32;
+
+            return ((int) index) & (this.table.length - 1);
+        }
+
+        private void reset() {
+            int odd = 0;
+
+            for (int i = 0; i < this.table.length; i++) {
+                odd += Long.bitCount(this.table[i] & ONE_MASK);
+                this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+            }
+
+            this.size = (this.size - (odd >>> 2)) >>> 1;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
     }
 }
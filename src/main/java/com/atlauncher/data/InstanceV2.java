@@ -26,6 +26,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -33,6 +35,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -69,10 +72,11 @@ import com.atlauncher.network.DownloadPool;
 import com.atlauncher.utils.FileUtils;
 import com.atlauncher.utils.OS;
 import com.atlauncher.utils.Utils;
+import com.atlauncher.utils.ZipCompressor;
+import com.atlauncher.utils.ZipExtractor;
 import com.google.gson.JsonIOException;
 
 import org.mini2Dx.gettext.GetText;
-import org.zeroturnaround.zip.ZipUtil;
 
 import net.arikia.dev.drpc.DiscordRPC;
 import net.arikia.dev.drpc.DiscordRichPresence;
@@ -268,7 +272,7 @@ public class InstanceV2 extends MinecraftVersion {
             progressDialog.setLabel(GetText.tr("Downloading Minecraft"));
             com.atlauncher.network.Download clientDownload = com.atlauncher.network.Download.build()
                     .setUrl(this.downloads.client.url).hash(this.downloads.client.sha1).size(this.downloads.client.size)
-                    .withHttpClient(httpClient).downloadTo(this.getMinecraftJarLibraryPath());
+                    .withHttpClient(httpClient).segmented().downloadTo(this.getMinecraftJarLibraryPath());
 
             if (clientDownload.needToDownload()) {
                 progressDialog.setTotalBytes(this.downloads.client.size);
@@ -349,9 +353,9 @@ public class InstanceV2 extends MinecraftVersion {
                 Path downloadedFile = FileSystem.RESOURCES_OBJECTS.resolve(filename);
 
                 if (index.mapToResources) {
-                    FileUtils.copyFile(downloadedFile, this.getRoot().resolve("resources/" + key), true);
+                    FileUtils.linkFile(downloadedFile, this.getRoot().resolve("resources/" + key), true);
                 } else if (assetIndex.id.equalsIgnoreCase("legacy")) {
-                    FileUtils.copyFile(downloadedFile, FileSystem.RESOURCES_VIRTUAL_LEGACY.resolve(key),
+                    FileUtils.linkFile(downloadedFile, FileSystem.RESOURCES_VIRTUAL_LEGACY.resolve(key),
                         true);
                 }
             });
@@ -366,13 +370,17 @@ public class InstanceV2 extends MinecraftVersion {
             if (library.hasNativeForOS()) {
                 File nativeFile = FileSystem.LIBRARIES.resolve(library.getNativeDownloadForOS().path).toFile();
 
-                ZipUtil.unpack(nativeFile, nativesTempDir.toFile(), name -> {
-                    if (library.extract != null && library.extract.shouldExclude(name)) {
-                        return null;
-                    }
+                try {
+                    ZipExtractor.extract(nativeFile.toPath(), nativesTempDir, name -> {
+                        if (library.extract != null && library.extract.shouldExclude(name)) {
+                            return null;
+                        }
 
-                    return name;
-                });
+                        return name;
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             }
         });
 
@@ -840,21 +848,6 @@ public class InstanceV2 extends MinecraftVersion {
         }).collect(Collectors.toList());
         manifest.overrides = "overrides";
 
-        // create temp directory to put this in
-        Path tempDir = FileSystem.TEMP.resolve(this.launcher.name + "-export");
-        FileUtils.createDirectory(tempDir);
-
-        // create manifest.json
-        try (FileWriter fileWriter = new FileWriter(tempDir.resolve("manifest.json").toFile())) {
-            Gsons.MINECRAFT.toJson(manifest, fileWriter);
-        } catch (JsonIOException | IOException e) {
-            LogManager.logStackTrace("Failed to save manifest.json", e);
-
-            FileUtils.deleteDirectory(tempDir);
-
-            return false;
-        }
-
         // create modlist.html
         StringBuilder sb = new StringBuilder("<ul>");
         this.launcher.mods.stream().filter(DisableableMod::isFromCurse).forEach(mod -> {
@@ -866,52 +859,45 @@ public class InstanceV2 extends MinecraftVersion {
         });
         sb.append("</ul>");
 
-        try (FileWriter fileWriter = new FileWriter(tempDir.resolve("modlist.html").toFile())) {
-            fileWriter.write(sb.toString());
-        } catch (JsonIOException | IOException e) {
-            LogManager.logStackTrace("Failed to save modlist.html", e);
+        // files that come from Curse are downloaded when importing, so don't include them
+        Set<Path> curseFiles = launcher.mods.stream().filter(DisableableMod::isFromCurse)
+                .map(mod -> mod.getFile(this).toPath().toAbsolutePath().normalize()).collect(Collectors.toSet());
+        Path root = getRoot().toAbsolutePath().normalize();
+        Path output = to.toAbsolutePath().normalize();
 
-            FileUtils.deleteDirectory(tempDir);
+        // everything is compressed straight from the instance into the zip file
+        try (ZipCompressor zip = new ZipCompressor(to)) {
+            zip.add("manifest.json", Gsons.MINECRAFT.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+            zip.add("modlist.html", sb.toString().getBytes(StandardCharsets.UTF_8));
 
-            return false;
-        }
-
-        // copy over the overrides folder
-        Path overridesPath = tempDir.resolve("overrides");
-        FileUtils.createDirectory(overridesPath);
+            for (String path : overrides) {
+                Path overridePath = root.resolve(path);
 
-        for (String path : overrides) {
-            if (!path.equalsIgnoreCase(name + ".zip") && getRoot().resolve(path).toFile().exists()
-                    && (getRoot().resolve(path).toFile().isFile()
-                            || getRoot().resolve(path).toFile().list().length != 0)) {
-                if (getRoot().resolve(path).toFile().isDirectory()) {
-                    Utils.copyDirectory(getRoot().resolve(path).toFile(), overridesPath.resolve(path).toFile());
-                } else {
-                    Utils.copyFile(getRoot().resolve(path).toFile(), overridesPath.resolve(path).toFile(), true);
+                if (path.equalsIgnoreCase(name + ".zip") || !Files.exists(overridePath)) {
+                    continue;
                 }
-            }
-        }
 
-        // remove files that come from Curse
-        launcher.mods.stream().filter(DisableableMod::isFromCurse).forEach(mod -> {
-            File file = mod.getFile(this, overridesPath);
+                if (Files.isDirectory(overridePath)) {
+                    zip.addDirectory(overridePath, entry -> {
+                        Path file = overridePath.resolve(entry).normalize();
 
-            if (file.exists()) {
-                FileUtils.delete(file.toPath());
-            }
-        });
+                        if (entry.endsWith("/") || curseFiles.contains(file) || file.equals(output)) {
+                            return null;
+                        }
 
-        for (String path : overrides) {
-            // if no files, remove the directory
-            if (overridesPath.resolve(path).toFile().isDirectory()
-                    && overridesPath.resolve(path).toFile().list().length == 0) {
-                FileUtils.deleteDirectory(overridesPath.resolve(path));
+                        return "overrides/" + path + "/" + entry;
+                    });
+                } else if (!curseFiles.contains(overridePath.normalize())) {
+                    zip.addFile("overrides/" + path, overridePath);
+                }
             }
-        }
+        } catch (JsonIOException | IOException e) {
+            LogManager.logStackTrace("Failed to export instance", e);
 
-        ZipUtil.pack(tempDir.toFile(), to.toFile());
+            FileUtils.delete(to);
 
-        FileUtils.deleteDirectory(tempDir);
+            return false;
+        }
 
         return true;
     }
@@ -22,9 +22,11 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
@@ -37,6 +39,7 @@ import com.atlauncher.exceptions.InvalidPack;
 import com.atlauncher.managers.DialogManager;
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.managers.PackManager;
+import com.atlauncher.utils.FileUtils;
 import com.atlauncher.utils.OS;
 import com.atlauncher.utils.Utils;
 import com.google.gson.JsonIOException;
@@ -75,6 +78,20 @@ public class Server {
         }
     }
 
+    /**
+     * Checks if the server looks to be running, by checking if any of its worlds
+     * are locked. Only servers for Minecraft 1.16 and newer lock their worlds, so
+     * older ones are never seen as running.
+     */
+    public boolean isRunning() {
+        try (Stream<Path> stream = Files.list(this.getRoot())) {
+            return stream.map(path -> path.resolve("session.lock")).anyMatch(FileUtils::isLocked);
+        } catch (IOException e) {
+            LogManager.logStackTrace("Couldn't check if server " + this.name + " is running", e, false);
+            return false;
+        }
+    }
+
     public void launch(boolean close) {
         launch("", close);
     }
@@ -28,6 +28,7 @@ import com.atlauncher.builders.HTMLBuilder;
 import com.atlauncher.data.Constants;
 import com.atlauncher.managers.DialogManager;
 import com.atlauncher.managers.LogManager;
+import com.atlauncher.utils.FileUtils;
 import com.atlauncher.utils.Hashing;
 import com.atlauncher.utils.OS;
 import com.atlauncher.utils.Utils;
@@ -636,6 +637,19 @@ public class Mod {
         }
     }
 
+    /**
+     * If this mod has to be installed after, and in the same order as, the other mods
+     * like it, because it's extracted over the top of them rather than into a place of
+     * its own.
+     */
+    public boolean mustInstallInOrder(InstanceInstaller installer) {
+        if (!installer.isServer) {
+            return false;
+        }
+
+        return (this.serverUrl != null ? this.serverType : this.type) == ModType.jar;
+    }
+
     public void install(InstanceInstaller installer) {
         File fileLocation;
         ModType thisType;
@@ -650,17 +664,17 @@ public class Mod {
             case jar:
             case forge:
                 if (installer.isServer && thisType == ModType.forge) {
-                    Utils.copyFile(fileLocation, installer.root.toFile());
+                    FileUtils.linkFile(fileLocation.toPath(), installer.root);
                     break;
                 } else if (installer.isServer && thisType == ModType.jar) {
                     Utils.unzip(fileLocation, installer.temp.resolve("jar").toFile());
                     break;
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("jarmods").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("jarmods"));
                 break;
             case mcpc:
                 if (installer.isServer) {
-                    Utils.copyFile(fileLocation, installer.root.toFile());
+                    FileUtils.linkFile(fileLocation.toPath(), installer.root);
                     break;
                 }
                 break;
@@ -668,13 +682,13 @@ public class Mod {
                 if (!installer.root.resolve("texturepacks").toFile().exists()) {
                     installer.root.resolve("texturepacks").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("texturepacks").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("texturepacks"));
                 break;
             case resourcepack:
                 if (!installer.root.resolve("resourcepacks").toFile().exists()) {
                     installer.root.resolve("resourcepacks").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("resourcepacks").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("resourcepacks"));
                 break;
             case texturepackextract:
                 if (!installer.root.resolve("texturepacks").toFile().exists()) {
@@ -697,56 +711,57 @@ public class Mod {
                         File thisFile = new File(dir, name);
                         return thisFile.isDirectory();
                     })) {
-                        Utils.copyDirectory(new File(thisFolder, dir), installer.root.resolve("mods").toFile());
+                        FileUtils.linkDirectory(new File(thisFolder, dir).toPath(), installer.root.resolve("mods"));
                     }
                 }
                 Utils.delete(tempDirMillenaire);
                 break;
             case mods:
-                Utils.copyFile(fileLocation, installer.root.resolve("mods").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("mods"));
                 break;
             case ic2lib:
                 if (!installer.root.resolve("mods/ic2").toFile().exists()) {
                     installer.root.resolve("mods/ic2").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("mods/ic2").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("mods/ic2"));
                 break;
             case flan:
                 if (!installer.root.resolve("Flan").toFile().exists()) {
                     installer.root.resolve("Flan").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("Flan").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("Flan"));
                 break;
             case denlib:
                 if (!installer.root.resolve("mods/denlib").toFile().exists()) {
                     installer.root.resolve("mods/denlib").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("mods/denlib").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("mods/denlib"));
                 break;
             case depandency:
             case dependency:
                 if (!installer.root.resolve("mods/" + installer.minecraftVersion.id).toFile().exists()) {
                     installer.root.resolve("mods/" + installer.minecraftVersion.id).toFile().mkdirs();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("mods/" + installer.minecraftVersion.id).toFile());
+                FileUtils.linkFile(fileLocation.toPath(),
+                        installer.root.resolve("mods/" + installer.minecraftVersion.id));
                 break;
             case plugins:
                 if (!installer.root.resolve("plugins").toFile().exists()) {
                     installer.root.resolve("plugins").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("plugins").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("plugins"));
                 break;
             case coremods:
                 if (!installer.root.resolve("coremods").toFile().exists()) {
                     installer.root.resolve("coremods").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("coremods").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("coremods"));
                 break;
             case shaderpack:
                 if (!installer.root.resolve("shaderpacks").toFile().exists()) {
                     installer.root.resolve("shaderpacks").toFile().mkdir();
                 }
-                Utils.copyFile(fileLocation, installer.root.resolve("shaderpacks").toFile());
+                FileUtils.linkFile(fileLocation.toPath(), installer.root.resolve("shaderpacks"));
                 break;
             case extract:
                 File tempDirExtract = FileSystem.TEMP.resolve(getSafeName()).toFile();
@@ -757,13 +772,13 @@ public class Mod {
                         if (!installer.root.resolve("coremods").toFile().exists()) {
                             installer.root.resolve("coremods").toFile().mkdir();
                         }
-                        Utils.copyDirectory(folder, installer.root.resolve("coremods").toFile());
+                        FileUtils.linkDirectory(folder.toPath(), installer.root.resolve("coremods"));
                         break;
                     case mods:
-                        Utils.copyDirectory(folder, installer.root.resolve("mods").toFile());
+                        FileUtils.linkDirectory(folder.toPath(), installer.root.resolve("mods"));
                         break;
                     case root:
-                        Utils.copyDirectory(folder, installer.root.toFile());
+                        FileUtils.linkDirectory(folder.toPath(), installer.root);
                         break;
                     default:
                         LogManager.error("No known way to extract mod " + this.name + " with type " + this.extractTo);
@@ -787,7 +802,7 @@ public class Mod {
                                 if (!installer.root.resolve("coremods").toFile().exists()) {
                                     installer.root.resolve("coremods").toFile().mkdir();
                                 }
-                                Utils.copyDirectory(tempFileDecomp, installer.root.resolve("coremods").toFile());
+                                FileUtils.linkDirectory(tempFileDecomp.toPath(), installer.root.resolve("coremods"));
                             }
                             break;
                         case jar:
@@ -803,14 +818,14 @@ public class Mod {
                             if (tempFileDecomp.isFile()) {
                                 Utils.copyFile(tempFileDecomp, installer.root.resolve("mods").toFile());
                             } else {
-                                Utils.copyDirectory(tempFileDecomp, installer.root.resolve("mods").toFile());
+                                FileUtils.linkDirectory(tempFileDecomp.toPath(), installer.root.resolve("mods"));
                             }
                             break;
                         case root:
                             if (tempFileDecomp.isFile()) {
                                 Utils.copyFile(tempFileDecomp, installer.root.toFile());
                             } else {
-                                Utils.copyDirectory(tempFileDecomp, installer.root.toFile());
+                                FileUtils.linkDirectory(tempFileDecomp.toPath(), installer.root);
                             }
                             break;
                         default:
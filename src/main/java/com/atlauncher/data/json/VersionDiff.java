@@ -0,0 +1,149 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.data.json;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import com.atlauncher.Gsons;
+
+/**
+ * The differences between two versions of the same pack, used to work out if an
+ * instance can be updated by only touching what changed rather than being fully
+ * reinstalled.
+ */
+public final class VersionDiff {
+    // mods of these types are a single file in a known place, so can be added and removed on their own
+    private static final Set<ModType> STANDALONE_TYPES = EnumSet.of(ModType.mods, ModType.coremods, ModType.jar,
+            ModType.forge, ModType.mcpc, ModType.ic2lib, ModType.denlib, ModType.texturepack, ModType.resourcepack,
+            ModType.shaderpack);
+
+    private final Version from;
+    private final Version to;
+
+    public VersionDiff(Version from, Version to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public boolean hasMinecraftChanged() {
+        return !Objects.equals(this.from.minecraft, this.to.minecraft);
+    }
+
+    public boolean hasLoaderChanged() {
+        return !jsonEquals(this.from.loader, this.to.loader);
+    }
+
+    /**
+     * If the libraries have changed. Libraries which depend on a mod being selected
+     * are always treated as changed, since the selected mods may have changed too.
+     */
+    public boolean haveLibrariesChanged() {
+        return !jsonEquals(this.from.libraries, this.to.libraries) || (this.to.libraries != null && this.to.libraries
+                .stream().anyMatch(library -> library.depends != null || library.dependsGroup != null));
+    }
+
+    public boolean haveLaunchArgumentsChanged() {
+        return !jsonEquals(this.from.mainClass, this.to.mainClass)
+                || !jsonEquals(this.from.extraArguments, this.to.extraArguments);
+    }
+
+    public boolean haveConfigsChanged() {
+        if (this.from.noConfigs != this.to.noConfigs) {
+            return true;
+        }
+
+        if (this.to.noConfigs) {
+            return false;
+        }
+
+        return this.from.configs == null || this.to.configs == null || this.to.configs.sha1 == null
+                || !this.to.configs.sha1.equalsIgnoreCase(this.from.configs.sha1);
+    }
+
+    /**
+     * Checks if the given mod from the new version is exactly the same in the old
+     * version, so an already installed copy of it can be left where it is.
+     */
+    public boolean isModUnchanged(Mod mod) {
+        Mod previous = getMod(this.from, mod.name);
+
+        if (previous == null || previous.type != mod.type || previous.download != mod.download
+                || !Objects.equals(previous.getFile(), mod.getFile())) {
+            return false;
+        }
+
+        if (previous.md5 != null && mod.md5 != null) {
+            return previous.md5.equalsIgnoreCase(mod.md5);
+        }
+
+        return Objects.equals(previous.url, mod.url) && Objects.equals(previous.version, mod.version);
+    }
+
+    /**
+     * Checks if the given mod was part of the old version, rather than something
+     * added to the instance by the launcher or the user.
+     */
+    public boolean wasModInPreviousVersion(String name) {
+        return getMod(this.from, name) != null;
+    }
+
+    /**
+     * If the instance can be updated by adding and removing the given mods on their
+     * own, leaving the Minecraft version, loader, libraries and everything else
+     * already installed where it is.
+     *
+     * @param changedMods the mods from either version which need to be added or
+     *                    removed
+     */
+    public boolean canUpdateIncrementally(List<Mod> changedMods) {
+        if (this.hasMinecraftChanged() || this.hasLoaderChanged() || this.haveLibrariesChanged()
+                || this.haveLaunchArgumentsChanged()) {
+            return false;
+        }
+
+        // actions work on the installed mods as a whole, so can't be applied to only some of them
+        if (this.from.hasActions() || this.to.hasActions()) {
+            return false;
+        }
+
+        if (this.from.caseAllFiles != this.to.caseAllFiles) {
+            return false;
+        }
+
+        return changedMods.stream().allMatch(VersionDiff::isStandalone);
+    }
+
+    /**
+     * If the given mod is a single file put in place as it was downloaded, so can be
+     * added and removed on its own.
+     */
+    public static boolean isStandalone(Mod mod) {
+        return STANDALONE_TYPES.contains(mod.type);
+    }
+
+    private static Mod getMod(Version version, String name) {
+        return version.mods.stream().filter(mod -> mod.name.equalsIgnoreCase(name)).findFirst().orElse(null);
+    }
+
+    private static boolean jsonEquals(Object a, Object b) {
+        return Gsons.DEFAULT.toJsonTree(a).equals(Gsons.DEFAULT.toJsonTree(b));
+    }
+}
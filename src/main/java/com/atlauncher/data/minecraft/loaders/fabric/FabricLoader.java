@@ -17,23 +17,23 @@
  */
 package com.atlauncher.data.minecraft.loaders.fabric;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.stream.Stream;
 
 import com.atlauncher.FileSystem;
 import com.atlauncher.data.minecraft.Arguments;
@@ -42,11 +42,16 @@ import com.atlauncher.data.minecraft.loaders.Loader;
 import com.atlauncher.data.minecraft.loaders.LoaderVersion;
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.network.Download;
+import com.atlauncher.utils.FileUtils;
+import com.atlauncher.utils.Hashing;
 import com.atlauncher.utils.Utils;
+import com.atlauncher.utils.ZipMerger;
 import com.atlauncher.workers.InstanceInstaller;
 import com.google.gson.reflect.TypeToken;
 
 public class FabricLoader implements Loader {
+    private static final int MAX_CACHED_SERVER_LAUNCH_JARS = 10;
+
     protected String minecraft;
     protected FabricMetaVersion version;
     protected File tempDir;
@@ -135,6 +140,10 @@ public class FabricLoader implements Loader {
         makeServerLaunchJar();
     }
 
+    /**
+     * Builds the fabric-server-launch.jar from the libraries, reusing a previously
+     * built one from the cache if it was made from the exact same libraries.
+     */
     private void makeServerLaunchJar() {
         File file = new File(this.instanceInstaller.root.toFile(), "fabric-server-launch.jar");
         if (file.exists()) {
@@ -142,57 +151,32 @@ public class FabricLoader implements Loader {
         }
 
         try {
-
-            FileOutputStream outputStream = new FileOutputStream(file);
-            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
-
-            List<File> libraryFiles = this.getLibraryFiles();
-
-            Set<String> addedEntries = new HashSet<>();
-            {
-                addedEntries.add("META-INF/MANIFEST.MF");
-                zipOutputStream.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
-
-                Manifest manifest = new Manifest();
-                manifest.getMainAttributes().put(new Attributes.Name("Manifest-Version"), "1.0");
-                manifest.getMainAttributes().put(new Attributes.Name("Main-Class"),
-                        "net.fabricmc.loader.launch.server.FabricServerLauncher");
-                manifest.write(zipOutputStream);
-
-                zipOutputStream.closeEntry();
-
-                addedEntries.add("fabric-server-launch.properties");
-                zipOutputStream.putNextEntry(new ZipEntry("fabric-server-launch.properties"));
-                zipOutputStream.write(
-                        ("launch.mainClass=" + this.version.launcherMeta.getMainClass(this.instanceInstaller.isServer)
-                                + "\n").getBytes(StandardCharsets.UTF_8));
-                zipOutputStream.closeEntry();
-
-                byte[] buffer = new byte[32768];
-
-                for (File f : libraryFiles) {
-                    try (FileInputStream is = new FileInputStream(f); JarInputStream jis = new JarInputStream(is)) {
-                        JarEntry entry;
-                        while ((entry = jis.getNextJarEntry()) != null) {
-                            if (!addedEntries.contains(entry.getName())) {
-                                JarEntry newEntry = new JarEntry(entry.getName());
-                                zipOutputStream.putNextEntry(newEntry);
-
-                                int r;
-                                while ((r = jis.read(buffer, 0, buffer.length)) >= 0) {
-                                    zipOutputStream.write(buffer, 0, r);
-                                }
-
-                                zipOutputStream.closeEntry();
-                                addedEntries.add(entry.getName());
-                            }
-                        }
-                    }
+            List<Path> libraryFiles = this.getLibraryFiles().stream().map(File::toPath)
+                    .collect(Collectors.toList());
+            String mainClass = this.version.launcherMeta.getMainClass(this.instanceInstaller.isServer);
+
+            Path cachedJar = FileSystem.SERVER_LAUNCH_JAR_CACHE
+                    .resolve(getServerLaunchJarKey(libraryFiles, mainClass) + ".jar");
+
+            if (Files.exists(cachedJar)) {
+                LogManager.debug("Using cached Fabric server launch jar " + cachedJar.getFileName(), 3);
+                Files.setLastModifiedTime(cachedJar, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                FileUtils.createDirectory(FileSystem.SERVER_LAUNCH_JAR_CACHE);
+
+                Path tempJar = Files.createTempFile(FileSystem.SERVER_LAUNCH_JAR_CACHE, "fabric-server-launch",
+                        ".jar.part");
+                try {
+                    buildServerLaunchJar(tempJar, libraryFiles, mainClass);
+                    Files.move(tempJar, cachedJar, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(tempJar);
                 }
+
+                evictServerLaunchJars();
             }
 
-            zipOutputStream.close();
-            outputStream.close();
+            Files.copy(cachedJar, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
             FileOutputStream propertiesOutputStream = new FileOutputStream(
                     new File(this.instanceInstaller.root.toFile(), "fabric-server-launcher.properties"));
@@ -204,6 +188,50 @@ public class FabricLoader implements Loader {
         }
     }
 
+    private static void buildServerLaunchJar(Path to, List<Path> libraryFiles, String mainClass) throws IOException {
+        try (ZipMerger merger = new ZipMerger(to)) {
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(new Attributes.Name("Manifest-Version"), "1.0");
+            manifest.getMainAttributes().put(new Attributes.Name("Main-Class"),
+                    "net.fabricmc.loader.launch.server.FabricServerLauncher");
+
+            ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+            manifest.write(manifestBytes);
+            merger.add("META-INF/MANIFEST.MF", manifestBytes.toByteArray());
+
+            merger.add("fabric-server-launch.properties",
+                    ("launch.mainClass=" + mainClass + "\n").getBytes(StandardCharsets.UTF_8));
+
+            for (Path libraryFile : libraryFiles) {
+                merger.addAll(libraryFile);
+            }
+        }
+    }
+
+    private static String getServerLaunchJarKey(List<Path> libraryFiles, String mainClass) {
+        Map<Path, Hashing.HashCode> hashes = Hashing.sha1All(libraryFiles);
+
+        // order matters, as the first library with a given file wins
+        return Hashing.sha1(mainClass + "\n" + libraryFiles.stream().map(hashes::get).map(Hashing.HashCode::toString)
+                .collect(Collectors.joining("\n"))).toString();
+    }
+
+    private static void evictServerLaunchJars() {
+        List<Path> jars;
+        try (Stream<Path> stream = Files.list(FileSystem.SERVER_LAUNCH_JAR_CACHE)) {
+            jars = stream.filter(path -> path.getFileName().toString().endsWith(".jar")).collect(Collectors.toList());
+        } catch (IOException e) {
+            return;
+        }
+
+        jars.sort(Comparator.comparingLong((Path path) -> path.toFile().lastModified()).reversed());
+
+        for (Path jar : jars.subList(Math.min(jars.size(), MAX_CACHED_SERVER_LAUNCH_JARS), jars.size())) {
+            LogManager.debug("Removing Fabric server launch jar " + jar.getFileName() + " from cache", 3);
+            FileUtils.delete(jar);
+        }
+    }
+
     @Override
     public Arguments getArguments() {
         return null;
@@ -18,10 +18,10 @@
 package com.atlauncher.data.minecraft.loaders.forge;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.atlauncher.FileSystem;
@@ -29,7 +29,7 @@ import com.atlauncher.Gsons;
 import com.atlauncher.data.minecraft.Arguments;
 import com.atlauncher.data.minecraft.Library;
 import com.atlauncher.managers.LogManager;
-import com.atlauncher.utils.FileUtils;
+import com.atlauncher.workers.StageGraph;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
 
@@ -53,17 +53,12 @@ public class Forge113Loader extends ForgeLoader {
         version.libraries.forEach(library -> {
             // copy over any local files from the loader zip file
             if (library.name.equalsIgnoreCase(installProfile.path)) {
-                FileUtils.copyFile(new File(tempDir, "maven/" + library.downloads.artifact.path).toPath(),
-                        FileSystem.LIBRARIES.resolve(library.downloads.artifact.path), true);
-
-                FileUtils.copyFile(
-                        new File(tempDir,
-                                "maven/" + library.downloads.artifact.path.substring(0,
-                                        library.downloads.artifact.path.lastIndexOf(".jar")) + "-universal.jar")
-                                                .toPath(),
-                        FileSystem.LIBRARIES.resolve(library.downloads.artifact.path.substring(0,
-                                library.downloads.artifact.path.lastIndexOf(".jar")) + "-universal.jar"),
-                        true);
+                String universalPath = library.downloads.artifact.path.substring(0,
+                        library.downloads.artifact.path.lastIndexOf(".jar")) + "-universal.jar";
+
+                this.getInstaller().copyTo("maven/" + library.downloads.artifact.path,
+                        FileSystem.LIBRARIES.resolve(library.downloads.artifact.path));
+                this.getInstaller().copyTo("maven/" + universalPath, FileSystem.LIBRARIES.resolve(universalPath));
             }
         });
     }
@@ -72,28 +67,73 @@ public class Forge113Loader extends ForgeLoader {
         Version version = null;
 
         try {
-            version = Gsons.MINECRAFT.fromJson(new FileReader(new File(this.tempDir, "version.json")), Version.class);
-        } catch (JsonSyntaxException | JsonIOException | FileNotFoundException e) {
+            version = Gsons.MINECRAFT.fromJson(this.getInstaller().readText("version.json"), Version.class);
+        } catch (JsonSyntaxException | JsonIOException e) {
             LogManager.logStackTrace(e);
         }
 
         return version;
     }
 
+    /**
+     * Runs the processors from the install profile, running any that don't depend on
+     * each other at the same time.
+     *
+     * A processor depends on an earlier one if it uses a file the earlier one outputs,
+     * outputs a file the earlier one uses, or if either of them doesn't say what it
+     * outputs, in which case it can't be known what it touches.
+     */
     public void runProcessors() {
         ForgeInstallProfile installProfile = this.getInstallProfile();
+        boolean isClient = !instanceInstaller.isServer;
+        File librariesDirectory = instanceInstaller.isServer ? instanceInstaller.root.resolve("libraries").toFile()
+                : FileSystem.LIBRARIES.toFile();
+
+        List<List<File>> referenced = new ArrayList<>();
+        List<List<File>> outputs = new ArrayList<>();
+
+        for (Processor processor : installProfile.processors) {
+            referenced.add(processor.getReferencedFiles(installProfile, this.tempDir, isClient, librariesDirectory));
+            outputs.add(processor.getOutputFiles(installProfile, isClient, librariesDirectory));
+        }
+
+        // processors can only be given real files, so pull out any they need from the installer
+        Path extractDir = this.tempDir.toPath().toAbsolutePath();
+        referenced.stream().flatMap(List::stream).map(file -> file.toPath().toAbsolutePath())
+                .filter(path -> path.startsWith(extractDir)).distinct().forEach(path -> this.getInstaller()
+                        .extract(extractDir.relativize(path).toString().replace('\\', '/')));
 
-        installProfile.processors.forEach(processor -> {
-            if (!instanceInstaller.isCancelled()) {
-                try {
-                    processor.process(installProfile, this.tempDir, instanceInstaller);
-                } catch (IOException e) {
-                    LogManager.logStackTrace(e);
-                    LogManager.error("Failed to process processor with jar " + processor.getJar());
-                    instanceInstaller.cancel(true);
+        try {
+            StageGraph graph = new StageGraph(instanceInstaller::isCancelled);
+
+            for (int i = 0; i < installProfile.processors.size(); i++) {
+                Processor processor = installProfile.processors.get(i);
+                List<String> dependsOn = new ArrayList<>();
+
+                for (int j = 0; j < i; j++) {
+                    if (outputs.get(i).isEmpty() || outputs.get(j).isEmpty()
+                            || !Collections.disjoint(outputs.get(j), referenced.get(i))
+                            || !Collections.disjoint(outputs.get(i), referenced.get(j))) {
+                        dependsOn.add("processor" + j);
+                    }
                 }
+
+                graph.add("processor" + i, () -> {
+                    try {
+                        processor.process(installProfile, this.tempDir, instanceInstaller);
+                    } catch (IOException e) {
+                        LogManager.logStackTrace(e);
+                        LogManager.error("Failed to process processor with jar " + processor.getJar());
+                        instanceInstaller.cancel(true);
+                    }
+                }, dependsOn.toArray(new String[0]));
             }
-        });
+
+            graph.run();
+        } catch (Exception e) {
+            LogManager.logStackTrace("Failed to run processors", e);
+            instanceInstaller.cancel(true);
+        }
     }
 
     public List<Library> getInstallLibraries() {
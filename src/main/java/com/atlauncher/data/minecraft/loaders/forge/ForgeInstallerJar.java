@@ -0,0 +1,144 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.data.minecraft.loaders.forge;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.atlauncher.managers.LogManager;
+import com.atlauncher.utils.FileUtils;
+
+/**
+ * A view of a Forge installer jar which reads entries straight out of the jar as
+ * they're needed, rather than extracting the whole installer up front.
+ *
+ * Text files like the install profile are read once and kept in memory. Anything
+ * that needs to be a real file, such as files passed to processors, is only
+ * extracted when asked for.
+ */
+final class ForgeInstallerJar {
+    private final Path jar;
+    private final Path extractDir;
+    private final Map<String, String> texts = new ConcurrentHashMap<>();
+
+    ForgeInstallerJar(Path jar, Path extractDir) {
+        this.jar = jar;
+        this.extractDir = extractDir.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Reads the given entry as text.
+     *
+     * @return the text, or null if there's no such entry
+     */
+    String readText(String entry) {
+        String text = this.texts.get(entry);
+
+        if (text != null) {
+            return text;
+        }
+
+        try (FileSystem zip = open()) {
+            Path path = zip.getPath(entry);
+
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+
+            text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error reading " + entry + " from Forge installer", e);
+            return null;
+        }
+
+        this.texts.put(entry, text);
+        return text;
+    }
+
+    /**
+     * Copies the given entry to the given file, replacing it if it's already there.
+     *
+     * @return if the entry was copied
+     */
+    boolean copyTo(String entry, Path to) {
+        try (FileSystem zip = open()) {
+            Path path = zip.getPath(entry);
+
+            if (!Files.isRegularFile(path)) {
+                LogManager.error("Couldn't find " + entry + " in Forge installer");
+                return false;
+            }
+
+            FileUtils.createDirectory(to.getParent());
+
+            // the target may be linked elsewhere, so it's replaced rather than written over
+            Files.copy(path, to, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error copying " + entry + " from Forge installer", e);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Extracts the given entry into the extract directory, at the same path it has in
+     * the jar, unless it's already been extracted.
+     *
+     * @return if the entry is now there
+     */
+    synchronized boolean extract(String entry) {
+        Path to = this.extractDir.resolve(entry).normalize();
+
+        if (!to.startsWith(this.extractDir)) {
+            return false;
+        }
+
+        if (Files.isRegularFile(to)) {
+            return true;
+        }
+
+        // extract next to it first, so a half extracted file is never mistaken for a whole one
+        Path part = to.resolveSibling(to.getFileName() + ".part");
+
+        if (!this.copyTo(entry, part)) {
+            return false;
+        }
+
+        try {
+            Files.move(part, to, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error extracting " + entry + " from Forge installer", e);
+            return false;
+        }
+
+        return true;
+    }
+
+    // opened from the path rather than a URI so each caller gets its own, and they can be used at the same time
+    private FileSystem open() throws IOException {
+        return FileSystems.newFileSystem(this.jar, (ClassLoader) null);
+    }
+}
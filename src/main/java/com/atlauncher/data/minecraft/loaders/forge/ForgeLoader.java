@@ -18,7 +18,7 @@
 package com.atlauncher.data.minecraft.loaders.forge;
 
 import java.io.File;
-import java.io.FileReader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -37,7 +37,6 @@ import com.atlauncher.data.minecraft.loaders.Loader;
 import com.atlauncher.data.minecraft.loaders.LoaderVersion;
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.network.Download;
-import com.atlauncher.utils.FileUtils;
 import com.atlauncher.workers.InstanceInstaller;
 import com.google.gson.reflect.TypeToken;
 
@@ -51,6 +50,8 @@ public class ForgeLoader implements Loader {
     protected File tempDir;
     protected InstanceInstaller instanceInstaller;
 
+    private ForgeInstallerJar installer = null;
+
     @Override
     public void set(Map<String, Object> metadata, File tempDir, InstanceInstaller instanceInstaller,
                     LoaderVersion versionOverride) {
@@ -118,10 +119,9 @@ public class ForgeLoader implements Loader {
     public void downloadAndExtractInstaller() throws Exception {
         OkHttpClient httpClient = Network.createProgressClient(instanceInstaller);
 
-        Download download = Download.build().setUrl(this.installerUrl)
-                .downloadTo(
-                        FileSystem.LOADERS.resolve("forge-" + this.minecraft + "-" + this.version + "-installer.jar"))
-                .withInstanceInstaller(instanceInstaller).withHttpClient(httpClient).unzipTo(this.tempDir.toPath());
+        // only the parts of the installer that are needed get read out of it, so it's not extracted here
+        Download download = Download.build().setUrl(this.installerUrl).downloadTo(this.getInstallerPath())
+                .withInstanceInstaller(instanceInstaller).withHttpClient(httpClient).segmented();
 
         if (download.needToDownload()) {
             instanceInstaller.setTotalBytes(download.getFilesize());
@@ -132,6 +132,18 @@ public class ForgeLoader implements Loader {
         this.copyLocalLibraries();
     }
 
+    private Path getInstallerPath() {
+        return FileSystem.LOADERS.resolve("forge-" + this.minecraft + "-" + this.version + "-installer.jar");
+    }
+
+    protected synchronized ForgeInstallerJar getInstaller() {
+        if (this.installer == null) {
+            this.installer = new ForgeInstallerJar(this.getInstallerPath(), this.tempDir.toPath());
+        }
+
+        return this.installer;
+    }
+
     public void copyLocalLibraries() {
         ForgeInstallProfile installProfile = getInstallProfile();
 
@@ -139,8 +151,8 @@ public class ForgeLoader implements Loader {
             getLibraries().forEach(library -> {
                 // copy over any local files from the loader zip file
                 if (library.name.equalsIgnoreCase(installProfile.path)) {
-                    FileUtils.copyFile(new File(tempDir, "maven/" + library.downloads.artifact.path).toPath(),
-                            FileSystem.LIBRARIES.resolve(library.downloads.artifact.path), true);
+                    this.getInstaller().copyTo("maven/" + library.downloads.artifact.path,
+                            FileSystem.LIBRARIES.resolve(library.downloads.artifact.path));
                 }
             });
         } else {
@@ -148,8 +160,8 @@ public class ForgeLoader implements Loader {
                 // copy over any local files from the loader zip file
                 if (installProfile.install != null && installProfile.install.filePath != null
                         && library.name.equalsIgnoreCase(installProfile.install.path)) {
-                    FileUtils.copyFile(new File(tempDir, installProfile.install.filePath).toPath(),
-                            FileSystem.LIBRARIES.resolve(library.downloads.artifact.path), true);
+                    this.getInstaller().copyTo(installProfile.install.filePath,
+                            FileSystem.LIBRARIES.resolve(library.downloads.artifact.path));
                 }
             });
         }
@@ -159,7 +171,7 @@ public class ForgeLoader implements Loader {
         ForgeInstallProfile installProfile = null;
 
         try {
-            installProfile = Gsons.MINECRAFT.fromJson(new FileReader(new File(this.tempDir, "install_profile.json")),
+            installProfile = Gsons.MINECRAFT.fromJson(this.getInstaller().readText("install_profile.json"),
                     ForgeInstallProfile.class);
         } catch (Throwable e) {
             LogManager.logStackTrace(e);
@@ -176,7 +188,7 @@ public class ForgeLoader implements Loader {
         ForgeInstallProfile versionInfo = null;
 
         try {
-            versionInfo = Gsons.MINECRAFT.fromJson(new FileReader(new File(this.tempDir, "version.json")),
+            versionInfo = Gsons.MINECRAFT.fromJson(this.getInstaller().readText("version.json"),
                     ForgeInstallProfile.class);
         } catch (Throwable e) {
             LogManager.logStackTrace(e);
@@ -94,6 +94,7 @@ public class Processor {
         }
 
         List<URL> classpath = new ArrayList<>();
+        List<File> classpathFiles = new ArrayList<>();
         classpath.add(jarPath.toURI().toURL());
 
         for (String classpathItem : this.getClasspath()) {
@@ -108,6 +109,7 @@ public class Processor {
             }
 
             classpath.add(classpathFile.toURI().toURL());
+            classpathFiles.add(classpathFile);
         }
 
         List<String> args = new ArrayList<>();
@@ -179,9 +181,18 @@ public class Processor {
             args.add(FileSystem.LIBRARIES.toFile().getAbsolutePath());
         }
 
-            ClassLoader cl = new URLClassLoader(classpath.toArray(new URL[0]),
-                Processor.class.getClassLoader());
-        try {
+        List<File> outputFiles = this.getOutputFiles(installProfile, !instanceInstaller.isServer, librariesDirectory);
+        String cacheKey = ProcessorCache.getKey(jarPath, classpathFiles, args, outputFiles, librariesDirectory);
+
+        if (cacheKey != null && ProcessorCache.restore(cacheKey, outputFiles, librariesDirectory)
+                && !this.needToRun(installProfile, extractedDir, instanceInstaller)) {
+            LogManager.debug("Used cached outputs for processor " + this.jar);
+            return;
+        }
+
+        // processors can keep state in static fields, so each run gets its own class loader, which is closed
+        // afterwards so it doesn't keep the jars open
+        try (URLClassLoader cl = new URLClassLoader(classpath.toArray(new URL[0]), Processor.class.getClassLoader())) {
             LogManager.debug("Running processor");
             Class<?> cls = Class.forName(mainClass, true, cl);
             Method main = cls.getDeclaredMethod("main", String[].class);
@@ -191,7 +202,75 @@ public class Processor {
             LogManager.error(
                     "Failed to process processor with jar " + this.jar + " as there was an error invoking the jar");
             instanceInstaller.cancel(true);
+            return;
+        }
+
+        if (cacheKey != null && !instanceInstaller.isCancelled()) {
+            ProcessorCache.store(cacheKey, outputFiles, librariesDirectory);
+        }
+    }
+
+    /**
+     * Gets every file this processor's arguments point at, whether it reads or writes
+     * them. Unlike when the processor is run, this doesn't check the files exist, so
+     * it can be worked out before the processors that make them have run.
+     */
+    List<File> getReferencedFiles(ForgeInstallProfile installProfile, File extractedDir, boolean isClient,
+            File librariesDirectory) {
+        List<File> files = new ArrayList<>();
+
+        for (String arg : this.getArgs()) {
+            char start = arg.charAt(0);
+            char end = arg.charAt(arg.length() - 1);
+
+            if (start == '{' && end == '}') {
+                Data data = installProfile.data.get(arg.substring(1, arg.length() - 1));
+                String value = data == null ? null : data.getValue(isClient, librariesDirectory);
+
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+
+                File file = new File(value);
+                if (value.charAt(0) == '/' && !file.toPath().startsWith(librariesDirectory.toPath())
+                        && !file.toPath().startsWith(FileSystem.LIBRARIES)) {
+                    file = new File(extractedDir, value);
+                }
+
+                files.add(file.getAbsoluteFile());
+            } else if (start == '[' && end == ']') {
+                files.add(Utils.convertMavenIdentifierToFile(arg.substring(1, arg.length() - 1),
+                        FileSystem.LIBRARIES.toFile()).getAbsoluteFile());
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Gets the files this processor says it outputs.
+     */
+    List<File> getOutputFiles(ForgeInstallProfile installProfile, boolean isClient, File librariesDirectory) {
+        List<File> files = new ArrayList<>();
+
+        if (!this.hasOutputs()) {
+            return files;
         }
+
+        for (String key : this.outputs.keySet()) {
+            Data data = key.charAt(0) == '{' && key.charAt(key.length() - 1) == '}'
+                    ? installProfile.data.get(key.substring(1, key.length() - 1))
+                    : null;
+
+            // if any output can't be worked out, it's as if there aren't any so nothing gets cached
+            if (data == null) {
+                return new ArrayList<>();
+            }
+
+            files.add(new File(data.getValue(isClient, librariesDirectory)).getAbsoluteFile());
+        }
+
+        return files;
     }
 
     public boolean needToRun(ForgeInstallProfile installProfile, File extractedDir,
@@ -0,0 +1,215 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.data.minecraft.loaders.forge;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.atlauncher.FileSystem;
+import com.atlauncher.managers.LogManager;
+import com.atlauncher.utils.FileUtils;
+import com.atlauncher.utils.Hashing;
+
+/**
+ * A cache of the files output by Forge processors, keyed by a hash of the processor
+ * jar, its classpath, its arguments and the contents of every file passed to it.
+ * When the same processor is run with the same inputs again, such as when
+ * installing a second server on the same Forge version, the outputs are copied out
+ * of the cache instead of running the processor again.
+ *
+ * Outputs are copied rather than linked, since a later processor may write over an
+ * output in place. The cache is kept under {@link #MAX_SIZE}, removing the least
+ * recently used entries first.
+ */
+final class ProcessorCache {
+    private static final Path CACHE = FileSystem.PROCESSOR_CACHE;
+    private static final String COMPLETE_MARKER = ".complete";
+    private static final long MAX_SIZE = 1024L * 1024 * 1024;
+
+    private ProcessorCache() {
+    }
+
+    /**
+     * Works out the key for a processor run.
+     *
+     * @param jar                the processor jar
+     * @param classpath          the processor's classpath
+     * @param args               the arguments the processor will be run with
+     * @param outputs            the files the processor outputs
+     * @param librariesDirectory the libraries directory outputs are written to
+     * @return the key, or null if the outputs can't be cached
+     */
+    static String getKey(File jar, List<File> classpath, List<String> args, List<File> outputs,
+            File librariesDirectory) {
+        if (outputs.isEmpty() || outputs.stream().anyMatch(output -> relativise(output, librariesDirectory) == null)) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder();
+
+        key.append(Hashing.sha1(jar.toPath())).append('\n');
+        classpath.forEach(file -> key.append(Hashing.sha1(file.toPath())).append('\n'));
+
+        for (String arg : args) {
+            File file = new File(arg);
+
+            if (outputs.contains(file)) {
+                // outputs can be in a server's own libraries folder, so only their place in it matters
+                key.append("output:").append(relativise(file, librariesDirectory));
+            } else if (file.isAbsolute() && file.isFile()) {
+                key.append("input:").append(Hashing.sha1(file.toPath()));
+            } else {
+                key.append(arg);
+            }
+
+            key.append('\n');
+        }
+
+        return Hashing.sha1(key.toString()).toString();
+    }
+
+    /**
+     * Copies the outputs for the given key out of the cache, if it has them.
+     *
+     * @return if all the outputs were copied into place
+     */
+    static synchronized boolean restore(String key, List<File> outputs, File librariesDirectory) {
+        Path entry = CACHE.resolve(key);
+        Path marker = entry.resolve(COMPLETE_MARKER);
+
+        if (!Files.isRegularFile(marker)) {
+            return false;
+        }
+
+        try {
+            for (File output : outputs) {
+                Path cached = entry.resolve(relativise(output, librariesDirectory));
+
+                if (!Files.isRegularFile(cached)) {
+                    return false;
+                }
+
+                FileUtils.createDirectory(output.toPath().getParent());
+                Files.copy(cached, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error restoring processor outputs from cache", e, false);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the outputs of a processor run to the cache.
+     */
+    static synchronized void store(String key, List<File> outputs, File librariesDirectory) {
+        Path entry = CACHE.resolve(key);
+
+        if (outputs.stream().anyMatch(output -> !output.isFile())) {
+            return;
+        }
+
+        try {
+            if (Files.exists(entry)) {
+                FileUtils.deleteDirectory(entry);
+            }
+
+            for (File output : outputs) {
+                Path cached = entry.resolve(relativise(output, librariesDirectory));
+
+                FileUtils.createDirectory(cached.getParent());
+                Files.copy(output.toPath(), cached, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            Files.createFile(entry.resolve(COMPLETE_MARKER));
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error adding processor outputs to cache", e, false);
+            FileUtils.deleteDirectory(entry);
+            return;
+        }
+
+        evict();
+    }
+
+    private static String relativise(File file, File librariesDirectory) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        Path libraries = librariesDirectory.toPath().toAbsolutePath().normalize();
+
+        if (!path.startsWith(libraries)) {
+            return null;
+        }
+
+        return libraries.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void evict() {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(CACHE)) {
+            entries = stream.filter(Files::isDirectory).collect(Collectors.toList());
+        } catch (IOException e) {
+            return;
+        }
+
+        List<Path> byLastUsed = new ArrayList<>(entries);
+        byLastUsed.sort(Comparator.comparingLong(ProcessorCache::getLastUsed));
+
+        long size = byLastUsed.stream().mapToLong(ProcessorCache::getSize).sum();
+
+        for (Path entry : byLastUsed) {
+            if (size <= MAX_SIZE) {
+                break;
+            }
+
+            long entrySize = getSize(entry);
+            LogManager.debug("Removing processor outputs " + entry.getFileName() + " from cache", 3);
+
+            if (FileUtils.deleteDirectory(entry)) {
+                size -= entrySize;
+            }
+        }
+    }
+
+    private static long getLastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry.resolve(COMPLETE_MARKER)).toMillis();
+        } catch (IOException e) {
+            // unfinished entries go first
+            return 0L;
+        }
+    }
+
+    private static long getSize(Path entry) {
+        try (Stream<Path> stream = Files.walk(entry)) {
+            return stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
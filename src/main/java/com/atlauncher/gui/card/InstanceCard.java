@@ -75,11 +75,11 @@ import com.atlauncher.network.Analytics;
 import com.atlauncher.utils.Java;
 import com.atlauncher.utils.OS;
 import com.atlauncher.utils.Utils;
+import com.atlauncher.utils.ZipCompressor;
 import com.atlauncher.utils.ZipNameMapper;
 import com.google.gson.reflect.TypeToken;
 
 import org.mini2Dx.gettext.GetText;
-import org.zeroturnaround.zip.ZipUtil;
 
 /**
  * <p/>
@@ -336,10 +336,18 @@ public class InstanceCard extends CollapsiblePanel implements RelocalizationList
                         String time = timestamp.toString().replaceAll("[^0-9]", "_");
                         String filename = instance.getSafeName() + "-" + time.substring(0, time.lastIndexOf("_"))
                                 + ".zip";
-                        ZipUtil.pack(instance.getRootDirectory(), FileSystem.BACKUPS.resolve(filename).toFile(),
-                                ZipNameMapper.INSTANCE_BACKUP);
+                        try {
+                            // the zip file isn't finished until it's closed, which can still fail
+                            try (ZipCompressor zip = new ZipCompressor(FileSystem.BACKUPS.resolve(filename))) {
+                                zip.addDirectory(instance.getRootDirectory().toPath(), ZipNameMapper.INSTANCE_BACKUP);
+                            }
+
+                            App.TOASTER.pop(GetText.tr("Backup is complete"));
+                        } catch (IOException ex) {
+                            LogManager.logStackTrace("Failed to backup " + instance.getName(), ex);
+                            App.TOASTER.popError(GetText.tr("Backup failed"));
+                        }
                         dialog.dispose();
-                        App.TOASTER.pop(GetText.tr("Backup is complete"));
                     });
                     backupThread.start();
                     dialog.addWindowListener(new WindowAdapter() {
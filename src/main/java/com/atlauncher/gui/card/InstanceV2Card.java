@@ -33,11 +33,11 @@ import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.sql.Timestamp;
-import java.util.Date;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
@@ -75,6 +75,7 @@ import com.atlauncher.managers.DialogManager;
 import com.atlauncher.managers.InstanceManager;
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.network.Analytics;
+import com.atlauncher.utils.BackupStore;
 import com.atlauncher.utils.Java;
 import com.atlauncher.utils.OS;
 import com.atlauncher.utils.Utils;
@@ -82,7 +83,6 @@ import com.atlauncher.utils.ZipNameMapper;
 import com.google.gson.reflect.TypeToken;
 
 import org.mini2Dx.gettext.GetText;
-import org.zeroturnaround.zip.ZipUtil;
 
 /**
  * <p/>
@@ -324,7 +324,7 @@ public class InstanceV2Card extends CollapsiblePanel implements RelocalizationLi
             if (Files.isDirectory(instance.getRoot().resolve("saves"))) {
                 int ret = DialogManager.yesNoDialog().setTitle(GetText.tr("Backing Up {0}", instance.launcher.name))
                         .setContent(new HTMLBuilder().center().text(GetText.tr(
-                                "Backups saves all your worlds as well as some other files such as your configs and<br/>optionally your mods (you can enable/disable this in the Settings tab), so you can restore them later.<br/><br/>Once backed up you can find the zip file in the backups/ folder.<br/><br/>Do you want to backup this instance?"))
+                                "Backups saves all your worlds as well as some other files such as your configs and<br/>optionally your mods (you can enable/disable this in the Settings tab), so you can restore them later.<br/><br/>Only files which have changed since the last backup take up more space. To restore or delete a<br/>backup, right click the instance's image and choose Restore Backup.<br/><br/>Do you want to backup this instance?"))
                                 .build())
                         .setType(DialogManager.INFO).show();
 
@@ -355,14 +355,17 @@ public class InstanceV2Card extends CollapsiblePanel implements RelocalizationLi
                             "InstanceV2");
 
                     final Thread backupThread = new Thread(() -> {
-                        Timestamp timestamp = new Timestamp(new Date().getTime());
-                        String time = timestamp.toString().replaceAll("[^0-9]", "_");
-                        String filename = instance.getSafeName() + "-" + time.substring(0, time.lastIndexOf("_"))
-                                + ".zip";
-                        ZipUtil.pack(instance.getRoot().toFile(), FileSystem.BACKUPS.resolve(filename).toFile(),
-                                ZipNameMapper.INSTANCE_BACKUP);
+                        try {
+                            new BackupStore(FileSystem.BACKUP_STORE).backup(instance.getSafeName(),
+                                    instance.getRoot(), ZipNameMapper.INSTANCE_BACKUP);
+                            App.TOASTER.pop(GetText.tr("Backup is complete"));
+                        } catch (InterruptedException ex) {
+                            LogManager.warn("Backup of " + instance.launcher.name + " was cancelled");
+                        } catch (IOException ex) {
+                            LogManager.logStackTrace("Failed to backup " + instance.launcher.name, ex);
+                            App.TOASTER.popError(GetText.tr("Backup failed"));
+                        }
                         dialog.dispose();
-                        App.TOASTER.pop(GetText.tr("Backup is complete"));
                     });
                     backupThread.start();
                     dialog.addWindowListener(new WindowAdapter() {
@@ -483,6 +486,9 @@ public class InstanceV2Card extends CollapsiblePanel implements RelocalizationLi
                     JMenuItem updateItem = new JMenuItem(GetText.tr("Update"));
                     rightClickMenu.add(updateItem);
 
+                    JMenuItem restoreBackupItem = new JMenuItem(GetText.tr("Restore Backup"));
+                    rightClickMenu.add(restoreBackupItem);
+
                     changeDescriptionItem.setVisible(instance.launcher.curseManifest != null
                             || (instance.getPack() != null && instance.getPack().system));
 
@@ -546,6 +552,77 @@ public class InstanceV2Card extends CollapsiblePanel implements RelocalizationLi
                         }
                     });
 
+                    restoreBackupItem.addActionListener(e15 -> {
+                        BackupStore backupStore = new BackupStore(FileSystem.BACKUP_STORE);
+                        List<BackupStore.Snapshot> snapshots = backupStore.getSnapshots(instance.getSafeName());
+
+                        if (snapshots.isEmpty()) {
+                            DialogManager.okDialog().setType(DialogManager.WARNING)
+                                    .setTitle(GetText.tr("No backups found"))
+                                    .setContent(GetText.tr("No backups were found for this instance")).show();
+                            return;
+                        }
+
+                        JComboBox<BackupStore.Snapshot> snapshotsComboBox = new JComboBox<>(
+                                snapshots.toArray(new BackupStore.Snapshot[0]));
+
+                        int ret = DialogManager.optionDialog().setTitle(GetText.tr("Restore Backup"))
+                                .setContent(new Object[] { GetText.tr(
+                                        "Select the backup to restore. Files in the backup will replace those in the instance."),
+                                        snapshotsComboBox })
+                                .addOption(GetText.tr("Restore"), true).addOption(GetText.tr("Delete"))
+                                .addOption(GetText.tr("Cancel")).show();
+
+                        BackupStore.Snapshot snapshot = (BackupStore.Snapshot) snapshotsComboBox.getSelectedItem();
+
+                        if (ret == 1) {
+                            int confirm = DialogManager.yesNoDialog().setTitle(GetText.tr("Delete Backup"))
+                                    .setContent(GetText.tr("Are you sure you want to delete the backup {0}?", snapshot))
+                                    .setType(DialogManager.ERROR).show();
+
+                            if (confirm == DialogManager.YES_OPTION) {
+                                final ProgressDialog dialog = new ProgressDialog(GetText.tr("Delete Backup"), 0,
+                                        GetText.tr("Deleting Backup. Please wait..."), null);
+                                dialog.addThread(new Thread(() -> {
+                                    try {
+                                        backupStore.delete(snapshot);
+                                        App.TOASTER.pop(GetText.tr("Backup deleted"));
+                                    } catch (IOException ex) {
+                                        LogManager.logStackTrace("Failed to delete backup " + snapshot, ex);
+                                        App.TOASTER.popError(GetText.tr("Failed to delete backup"));
+                                    }
+                                    dialog.close();
+                                }));
+                                dialog.start();
+                            }
+                        } else if (ret == 0) {
+                            if (App.launcher.minecraftLaunched) {
+                                DialogManager.okDialog().setType(DialogManager.WARNING)
+                                        .setTitle(GetText.tr("Minecraft Is Running"))
+                                        .setContent(GetText.tr("Backups can't be restored while Minecraft is running."))
+                                        .show();
+                                return;
+                            }
+
+                            Analytics.sendEvent(instance.launcher.pack + " - " + instance.launcher.version,
+                                    "RestoreBackup", "InstanceV2");
+
+                            final ProgressDialog dialog = new ProgressDialog(GetText.tr("Restore Backup"), 0,
+                                    GetText.tr("Restoring Backup. Please wait..."), null);
+                            dialog.addThread(new Thread(() -> {
+                                try {
+                                    backupStore.restore(snapshot, instance.getRoot(), ZipNameMapper.INSTANCE_BACKUP);
+                                    App.TOASTER.pop(GetText.tr("Backup restored"));
+                                } catch (IOException | InterruptedException ex) {
+                                    LogManager.logStackTrace("Failed to restore backup " + snapshot, ex);
+                                    App.TOASTER.popError(GetText.tr("Failed to restore backup"));
+                                }
+                                dialog.close();
+                            }));
+                            dialog.start();
+                        }
+                    });
+
                     cloneItem.addActionListener(e14 -> {
                         String clonedName = JOptionPane.showInputDialog(App.launcher.getParent(),
                                 GetText.tr("Enter a new name for this cloned instance."),
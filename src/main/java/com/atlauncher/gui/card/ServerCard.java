@@ -28,15 +28,16 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
-import java.sql.Timestamp;
-import java.util.Date;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JProgressBar;
@@ -58,11 +59,11 @@ import com.atlauncher.managers.DialogManager;
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.managers.ServerManager;
 import com.atlauncher.network.Analytics;
+import com.atlauncher.utils.BackupStore;
 import com.atlauncher.utils.OS;
 import com.atlauncher.utils.Utils;
 
 import org.mini2Dx.gettext.GetText;
-import org.zeroturnaround.zip.ZipUtil;
 
 @SuppressWarnings("serial")
 public class ServerCard extends CollapsiblePanel implements RelocalizationListener {
@@ -171,13 +172,17 @@ public class ServerCard extends CollapsiblePanel implements RelocalizationListen
                 Analytics.sendEvent(server.pack + " - " + server.version, "Backup", "Server");
 
                 final Thread backupThread = new Thread(() -> {
-                    Timestamp timestamp = new Timestamp(new Date().getTime());
-                    String time = timestamp.toString().replaceAll("[^0-9]", "_");
-                    String filename = "Server-" + server.getSafeName() + "-" + time.substring(0, time.lastIndexOf("_"))
-                            + ".zip";
-                    ZipUtil.pack(server.getRoot().toFile(), FileSystem.BACKUPS.resolve(filename).toFile());
+                    try {
+                        new BackupStore(FileSystem.BACKUP_STORE).backup(getBackupName(), server.getRoot(),
+                                name -> name);
+                        App.TOASTER.pop(GetText.tr("Backup is complete"));
+                    } catch (InterruptedException ex) {
+                        LogManager.warn("Backup of " + server.name + " was cancelled");
+                    } catch (IOException ex) {
+                        LogManager.logStackTrace("Failed to backup " + server.name, ex);
+                        App.TOASTER.popError(GetText.tr("Backup failed"));
+                    }
                     dialog.dispose();
-                    App.TOASTER.pop(GetText.tr("Backup is complete"));
                 });
                 backupThread.start();
                 dialog.addWindowListener(new WindowAdapter() {
@@ -210,6 +215,10 @@ public class ServerCard extends CollapsiblePanel implements RelocalizationListen
         this.openButton.addActionListener(e -> OS.openFileExplorer(server.getRoot()));
     }
 
+    private String getBackupName() {
+        return "Server-" + this.server.getSafeName();
+    }
+
     private void addMouseListeners() {
         this.image.addMouseListener(new MouseAdapter() {
             @Override
@@ -226,8 +235,82 @@ public class ServerCard extends CollapsiblePanel implements RelocalizationListen
                     JMenuItem changeImageItem = new JMenuItem(GetText.tr("Change Image"));
                     rightClickMenu.add(changeImageItem);
 
+                    JMenuItem restoreBackupItem = new JMenuItem(GetText.tr("Restore Backup"));
+                    rightClickMenu.add(restoreBackupItem);
+
                     rightClickMenu.show(image, e.getX(), e.getY());
 
+                    restoreBackupItem.addActionListener(e14 -> {
+                        BackupStore backupStore = new BackupStore(FileSystem.BACKUP_STORE);
+                        List<BackupStore.Snapshot> snapshots = backupStore.getSnapshots(getBackupName());
+
+                        if (snapshots.isEmpty()) {
+                            DialogManager.okDialog().setType(DialogManager.WARNING)
+                                    .setTitle(GetText.tr("No backups found"))
+                                    .setContent(GetText.tr("No backups were found for this server")).show();
+                            return;
+                        }
+
+                        JComboBox<BackupStore.Snapshot> snapshotsComboBox = new JComboBox<>(
+                                snapshots.toArray(new BackupStore.Snapshot[0]));
+
+                        int ret = DialogManager.optionDialog().setTitle(GetText.tr("Restore Backup"))
+                                .setContent(new Object[] { GetText.tr(
+                                        "Select the backup to restore. Files in the backup will replace those in the server."),
+                                        snapshotsComboBox })
+                                .addOption(GetText.tr("Restore"), true).addOption(GetText.tr("Delete"))
+                                .addOption(GetText.tr("Cancel")).show();
+
+                        BackupStore.Snapshot snapshot = (BackupStore.Snapshot) snapshotsComboBox.getSelectedItem();
+
+                        if (ret == 1) {
+                            int confirm = DialogManager.yesNoDialog().setTitle(GetText.tr("Delete Backup"))
+                                    .setContent(GetText.tr("Are you sure you want to delete the backup {0}?", snapshot))
+                                    .setType(DialogManager.ERROR).show();
+
+                            if (confirm == DialogManager.YES_OPTION) {
+                                final ProgressDialog dialog = new ProgressDialog(GetText.tr("Delete Backup"), 0,
+                                        GetText.tr("Deleting Backup. Please wait..."), null);
+                                dialog.addThread(new Thread(() -> {
+                                    try {
+                                        backupStore.delete(snapshot);
+                                        App.TOASTER.pop(GetText.tr("Backup deleted"));
+                                    } catch (IOException ex) {
+                                        LogManager.logStackTrace("Failed to delete backup " + snapshot, ex);
+                                        App.TOASTER.popError(GetText.tr("Failed to delete backup"));
+                                    }
+                                    dialog.close();
+                                }));
+                                dialog.start();
+                            }
+                        } else if (ret == 0) {
+                            if (server.isRunning()) {
+                                DialogManager.okDialog().setType(DialogManager.WARNING)
+                                        .setTitle(GetText.tr("Server Is Running"))
+                                        .setContent(
+                                                GetText.tr("Backups can't be restored while the server is running."))
+                                        .show();
+                                return;
+                            }
+
+                            Analytics.sendEvent(server.pack + " - " + server.version, "RestoreBackup", "Server");
+
+                            final ProgressDialog dialog = new ProgressDialog(GetText.tr("Restore Backup"), 0,
+                                    GetText.tr("Restoring Backup. Please wait..."), null);
+                            dialog.addThread(new Thread(() -> {
+                                try {
+                                    backupStore.restore(snapshot, server.getRoot(), name -> name);
+                                    App.TOASTER.pop(GetText.tr("Backup restored"));
+                                } catch (IOException | InterruptedException ex) {
+                                    LogManager.logStackTrace("Failed to restore backup " + snapshot, ex);
+                                    App.TOASTER.popError(GetText.tr("Failed to restore backup"));
+                                }
+                                dialog.close();
+                            }));
+                            dialog.start();
+                        }
+                    });
+
                     changeImageItem.addActionListener(e13 -> {
                         JFileChooser chooser = new JFileChooser();
                         chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
@@ -67,7 +67,7 @@ import com.atlauncher.managers.MinecraftManager;
 import com.atlauncher.managers.ServerManager;
 import com.atlauncher.network.Analytics;
 import com.atlauncher.utils.CurseApi;
-import com.atlauncher.utils.FileUtils;
+import com.atlauncher.utils.Trash;
 import com.atlauncher.workers.InstanceInstaller;
 
 import org.mini2Dx.gettext.GetText;
@@ -377,8 +377,8 @@ public class InstanceInstallerDialog extends JDialog {
                 boolean saveMods = !isServer && isReinstall && saveModsCheckbox.isSelected();
 
                 final InstanceInstaller instanceInstaller = new InstanceInstaller(nameField.getText(), pack, version,
-                        isReinstall, isServer, saveMods, shareCode, showModsChooser, loaderVersion, curseManifest,
-                        manifestFile) {
+                        isReinstall, isUpdate, isServer, saveMods, shareCode, showModsChooser, loaderVersion,
+                        curseManifest, manifestFile) {
 
                     protected void done() {
                         Boolean success = false;
@@ -412,7 +412,7 @@ public class InstanceInstallerDialog extends JDialog {
                                         pack.getName(), version.version);
 
                                 if (Files.exists(this.root) && Files.isDirectory(this.root)) {
-                                    FileUtils.deleteDirectory(this.root);
+                                    Trash.put(this.root);
                                 }
                             }
                         } else {
@@ -100,7 +100,7 @@ public class RuntimeDownloaderToolPanel extends AbstractToolPanel implements Act
                 OkHttpClient httpClient = Network.createProgressClient(dialog);
 
                 com.atlauncher.network.Download download = com.atlauncher.network.Download.build().setUrl(url)
-                        .hash(runtime.sha1).size(runtime.size).withHttpClient(httpClient)
+                        .hash(runtime.sha1).size(runtime.size).withHttpClient(httpClient).segmented()
                         .downloadTo(downloadFile.toPath());
 
                 if (download.needToDownload()) {
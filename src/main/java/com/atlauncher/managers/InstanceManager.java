@@ -34,6 +34,7 @@ import com.atlauncher.Gsons;
 import com.atlauncher.data.Instance;
 import com.atlauncher.data.InstanceV2;
 import com.atlauncher.utils.FileUtils;
+import com.atlauncher.utils.Trash;
 import com.atlauncher.utils.Utils;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
@@ -210,7 +211,7 @@ public class InstanceManager {
      */
     public static void removeInstance(Instance instance) {
         if (Data.INSTANCES_OLD.remove(instance)) {
-            Utils.delete(instance.getRootDirectory());
+            Trash.put(instance.getRootDirectory().toPath());
             saveInstances();
             App.launcher.reloadInstancesPanel();
         }
@@ -218,7 +219,7 @@ public class InstanceManager {
 
     public static void removeInstance(InstanceV2 instance) {
         if (Data.INSTANCES.remove(instance)) {
-            FileUtils.deleteDirectory(instance.getRoot());
+            Trash.put(instance.getRoot());
             App.launcher.reloadInstancesPanel();
         }
     }
@@ -19,12 +19,13 @@ package com.atlauncher.managers;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class PerformanceManager {
 
-    private static final Map<String, Instant> times = new HashMap<>();
+    // startup loads things on multiple threads at once
+    private static final Map<String, Instant> times = new ConcurrentHashMap<>();
 
     public static void start() {
         start(new Throwable().getStackTrace()[1].getMethodName());
@@ -29,7 +29,7 @@ import com.atlauncher.Data;
 import com.atlauncher.FileSystem;
 import com.atlauncher.Gsons;
 import com.atlauncher.data.Server;
-import com.atlauncher.utils.FileUtils;
+import com.atlauncher.utils.Trash;
 import com.atlauncher.utils.Utils;
 
 public class ServerManager {
@@ -99,7 +99,7 @@ public class ServerManager {
 
     public static void removeServer(Server server) {
         if (Data.SERVERS.remove(server)) {
-            FileUtils.deleteDirectory(server.getRoot());
+            Trash.put(server.getRoot());
             App.launcher.reloadServersPanel();
         }
     }
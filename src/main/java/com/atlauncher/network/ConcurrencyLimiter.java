@@ -0,0 +1,229 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.network;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.atlauncher.App;
+import com.atlauncher.managers.LogManager;
+
+/**
+ * Limits how many requests can be in flight to a single host at once, adjusting
+ * the limit based on how the host is coping.
+ *
+ * The limit grows by one for every limit's worth of requests that come back
+ * quickly, and is cut back when requests fail, get rate limited, take much longer
+ * than the fastest seen from the host or when the combined transfer rate drops. It
+ * never goes above the concurrent connections setting.
+ */
+public final class ConcurrencyLimiter {
+    private static final Map<String, ConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private static final double INITIAL_LIMIT = 4.0;
+    private static final double BACKOFF_ON_ERROR = 0.5;
+    private static final double BACKOFF_ON_SLOWDOWN = 0.9;
+
+    // how many times slower than the fastest response a response can be before backing off
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    // responses smaller than this are too quick to say anything useful about throughput
+    private static final long MIN_THROUGHPUT_SAMPLE_BYTES = 1024 * 1024;
+
+    private final String host;
+    private final Set<Permit> inFlight = new HashSet<>();
+
+    private double limit = INITIAL_LIMIT;
+    private long minLatency = Long.MAX_VALUE;
+    private double bestThroughput = 0.0;
+
+    private ConcurrencyLimiter(String host) {
+        this.host = host;
+    }
+
+    public static ConcurrencyLimiter forHost(String host) {
+        return LIMITERS.computeIfAbsent(host, ConcurrencyLimiter::new);
+    }
+
+    private static int getCap() {
+        return Math.max(1, App.settings.concurrentConnections);
+    }
+
+    public synchronized int getLimit() {
+        return (int) Math.max(1, Math.min(getCap(), Math.floor(this.limit)));
+    }
+
+    /**
+     * Waits until another request can be made to this host.
+     *
+     * Permits which haven't seen any activity for longer than the connection
+     * timeout are taken back, so a response body that's never closed can't block
+     * the host forever.
+     */
+    public synchronized Permit acquire() throws InterruptedException {
+        long idleTimeout = TimeUnit.SECONDS.toNanos(Math.max(1, App.settings.connectionTimeout));
+
+        while (true) {
+            this.reclaimIdlePermits(idleTimeout);
+
+            if (this.inFlight.size() < this.getLimit()) {
+                break;
+            }
+
+            this.wait(TimeUnit.NANOSECONDS.toMillis(idleTimeout));
+        }
+
+        Permit permit = new Permit(this);
+        this.inFlight.add(permit);
+        return permit;
+    }
+
+    private void reclaimIdlePermits(long idleTimeout) {
+        long now = System.nanoTime();
+
+        Iterator<Permit> iterator = this.inFlight.iterator();
+        while (iterator.hasNext()) {
+            Permit permit = iterator.next();
+
+            if (now - permit.lastActivity > idleTimeout) {
+                LogManager.debug("Reclaiming idle connection permit for " + this.host, 3);
+                permit.released = true;
+                iterator.remove();
+            }
+        }
+    }
+
+    private void increase() {
+        this.limit = Math.min(getCap(), this.limit + (1.0 / this.limit));
+    }
+
+    private void decrease(double factor) {
+        this.limit = Math.max(1.0, Math.min(getCap(), this.limit) * factor);
+    }
+
+    private synchronized void onLatency(long latency) {
+        if (latency < this.minLatency) {
+            this.minLatency = latency;
+        } else {
+            // let the baseline drift up slowly so one lucky response doesn't hold it down forever
+            this.minLatency += (latency - this.minLatency) / 64;
+        }
+
+        if (latency > this.minLatency * LATENCY_TOLERANCE) {
+            this.decrease(BACKOFF_ON_SLOWDOWN);
+        } else {
+            this.increase();
+        }
+    }
+
+    private synchronized void onThroughput(long bytes, long nanos) {
+        if (bytes < MIN_THROUGHPUT_SAMPLE_BYTES || nanos <= 0) {
+            return;
+        }
+
+        // estimate the combined rate of everything downloading from this host right now
+        double throughput = (bytes / (nanos / 1e9)) * Math.max(1, this.inFlight.size());
+
+        if (throughput > this.bestThroughput) {
+            this.bestThroughput = throughput;
+        } else if (throughput < this.bestThroughput / 2) {
+            this.decrease(BACKOFF_ON_SLOWDOWN);
+        }
+    }
+
+    private synchronized void onError() {
+        this.decrease(BACKOFF_ON_ERROR);
+    }
+
+    private synchronized void release(Permit permit, boolean failed, boolean complete) {
+        if (permit.released) {
+            return;
+        }
+
+        // throughput is estimated from everything in flight, so sample it before releasing
+        if (failed) {
+            this.onError();
+        } else if (complete && permit.responseReceived != 0L) {
+            this.onThroughput(permit.bytesRead, System.nanoTime() - permit.responseReceived);
+        }
+
+        permit.released = true;
+        this.inFlight.remove(permit);
+        this.notifyAll();
+    }
+
+    public static final class Permit {
+        private final ConcurrencyLimiter limiter;
+        private volatile long lastActivity = System.nanoTime();
+        private long requestSent = lastActivity;
+        private long responseReceived = 0L;
+        private long bytesRead = 0L;
+
+        // guarded by the limiter
+        private boolean released = false;
+
+        private Permit(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        /**
+         * Records that the request is being sent to the host over an open
+         * connection, so time spent connecting isn't counted towards how long the
+         * host took to respond.
+         */
+        public void requestSent() {
+            this.requestSent = System.nanoTime();
+            this.lastActivity = this.requestSent;
+        }
+
+        /**
+         * Records that the response headers have come back from the host.
+         *
+         * @param overloaded if the host said it's overloaded, such as a 429 or 503
+         */
+        public void responseReceived(boolean overloaded) {
+            this.responseReceived = System.nanoTime();
+            this.lastActivity = this.responseReceived;
+
+            if (overloaded) {
+                this.limiter.onError();
+            } else {
+                this.limiter.onLatency(this.responseReceived - this.requestSent);
+            }
+        }
+
+        public void bytesRead(long bytes) {
+            this.bytesRead += bytes;
+            this.lastActivity = System.nanoTime();
+        }
+
+        /**
+         * Gives the permit back once the request is done with.
+         *
+         * @param failed   if the request or reading the response failed
+         * @param complete if the whole response body was read
+         */
+        public void release(boolean failed, boolean complete) {
+            this.limiter.release(this, failed, complete);
+        }
+    }
+}
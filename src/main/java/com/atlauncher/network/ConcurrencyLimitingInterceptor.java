@@ -0,0 +1,144 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.network;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Makes every request wait for a permit from the {@link ConcurrencyLimiter} for
+ * its host, holding onto it until the response body has been read or closed.
+ *
+ * This needs to be added as an application interceptor, so the permit is waited
+ * for before a connection to the host is opened. {@link #NETWORK} should be added
+ * as a network interceptor as well, which times how long the host takes to
+ * respond once connected, and is what the limiter adjusts its limit from.
+ */
+public final class ConcurrencyLimitingInterceptor implements Interceptor {
+    public static final Interceptor NETWORK = chain -> {
+        ConcurrencyLimiter.Permit permit = chain.request().tag(ConcurrencyLimiter.Permit.class);
+
+        if (permit == null) {
+            return chain.proceed(chain.request());
+        }
+
+        permit.requestSent();
+        Response response = chain.proceed(chain.request());
+        permit.responseReceived(response.code() == 429 || response.code() == 503);
+
+        return response;
+    };
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        String host = chain.request().url().host();
+
+        ConcurrencyLimiter.Permit permit;
+        try {
+            permit = ConcurrencyLimiter.forHost(host).acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to connect to " + host);
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(
+                    chain.request().newBuilder().tag(ConcurrencyLimiter.Permit.class, permit).build());
+        } catch (IOException e) {
+            permit.release(true, false);
+            throw e;
+        }
+
+        if (response.body() == null) {
+            permit.release(false, true);
+            return response;
+        }
+
+        return response.newBuilder().body(new LimitedResponseBody(response.body(), permit)).build();
+    }
+
+    private static final class LimitedResponseBody extends ResponseBody {
+        private final ResponseBody responseBody;
+        private final ConcurrencyLimiter.Permit permit;
+        private BufferedSource bufferedSource;
+
+        private LimitedResponseBody(ResponseBody responseBody, ConcurrencyLimiter.Permit permit) {
+            this.responseBody = responseBody;
+            this.permit = permit;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return responseBody.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return responseBody.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            if (bufferedSource == null) {
+                bufferedSource = Okio.buffer(source(responseBody.source()));
+            }
+            return bufferedSource;
+        }
+
+        private Source source(Source source) {
+            return new ForwardingSource(source) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long bytesRead;
+                    try {
+                        bytesRead = super.read(sink, byteCount);
+                    } catch (IOException e) {
+                        permit.release(true, false);
+                        throw e;
+                    }
+
+                    // read() returns the number of bytes read, or -1 if this source is exhausted.
+                    if (bytesRead == -1) {
+                        permit.release(false, true);
+                    } else {
+                        permit.bytesRead(bytesRead);
+                    }
+
+                    return bytesRead;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    permit.release(false, false);
+                    super.close();
+                }
+            };
+        }
+    }
+}
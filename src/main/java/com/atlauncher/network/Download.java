@@ -17,14 +17,32 @@
  */
 package com.atlauncher.network;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.atlauncher.FileSystem;
 import com.atlauncher.Gsons;
@@ -32,12 +50,10 @@ import com.atlauncher.Network;
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.utils.FileUtils;
 import com.atlauncher.utils.Hashing;
-import com.atlauncher.utils.Utils;
+import com.atlauncher.utils.ZipExtractor;
 import com.atlauncher.workers.InstanceInstaller;
 import com.google.gson.Gson;
 
-import org.zeroturnaround.zip.ZipUtil;
-
 import okhttp3.CacheControl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -47,6 +63,18 @@ import okhttp3.Response;
 public final class Download {
     public static final int MAX_ATTEMPTS = 3;
 
+    // files at least this big can be downloaded in multiple segments at once when asked to
+    public static final long SEGMENTED_MIN_SIZE = 8L * 1024 * 1024;
+    private static final long MIN_SEGMENT_SIZE = 2L * 1024 * 1024;
+    private static final int MAX_SEGMENTS = 4;
+
+    private static final AtomicInteger SEGMENT_THREAD_NUMBER = new AtomicInteger(1);
+    private static final ExecutorService SEGMENT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Download-Segment-" + SEGMENT_THREAD_NUMBER.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // pre request
     String url;
     private String friendlyFileName;
@@ -61,10 +89,18 @@ public final class Download {
     private OkHttpClient httpClient = Network.CLIENT;
     private RequestBody post = null;
     private CacheControl cacheControl = null;
+    private boolean segmented = false;
 
     // generated on/after request
     private Response response;
 
+    // the ETag/Last-Modified of the response that wrote the current .part file, which is
+    // also kept in a .part.meta file next to it so the download can carry on in a later run
+    private String partValidator = null;
+
+    // the hash of the .part file, worked out while it was being downloaded
+    private Hashing.HashCode partHash = null;
+
     public Download() {
 
     }
@@ -74,16 +110,9 @@ public final class Download {
     }
 
     public boolean exists() {
-        try {
-            this.execute();
-
-            return this.response.isSuccessful();
+        try (Response response = this.probe()) {
+            return response.isSuccessful();
         } catch (IOException e) {
-            if (this.response != null) {
-                this.response.close();
-                this.response = null;
-            }
-
             LogManager.logStackTrace(e);
         }
 
@@ -119,7 +148,10 @@ public final class Download {
 
             this.execute();
 
-            return gson.fromJson(this.response.body().charStream(), tClass);
+            // Gson stops at the end of the json, so close the body to give back the connection
+            try (Reader reader = this.response.body().charStream()) {
+                return gson.fromJson(reader, tClass);
+            }
         } catch (IOException e) {
             if (this.response != null) {
                 this.response.close();
@@ -148,7 +180,10 @@ public final class Download {
 
             this.execute();
 
-            return gson.fromJson(this.response.body().charStream(), tClass);
+            // Gson stops at the end of the json, so close the body to give back the connection
+            try (Reader reader = this.response.body().charStream()) {
+                return gson.fromJson(reader, tClass);
+            }
         } catch (IOException e) {
             if (this.response != null) {
                 this.response.close();
@@ -237,12 +272,41 @@ public final class Download {
         return this;
     }
 
+    /**
+     * Allows this file to be downloaded over multiple connections at once, each
+     * fetching a different range of the file. This only kicks in for files of at
+     * least {@link #SEGMENTED_MIN_SIZE} from servers that support ranges.
+     */
+    public Download segmented() {
+        this.segmented = true;
+        return this;
+    }
+
     private void execute() throws IOException {
+        this.execute(0L, null);
+    }
+
+    private void execute(long resumeFrom, String validator) throws IOException {
         // connection is already open, so close it first
         if (this.response != null) {
             this.response.close();
         }
 
+        Request.Builder builder = this.newRequest();
+
+        if (resumeFrom > 0L && validator != null) {
+            builder.header("Range", "bytes=" + resumeFrom + "-");
+            builder.header("If-Range", validator);
+        }
+
+        this.response = httpClient.newCall(builder.build()).execute();
+
+        if (this.response == null || !this.response.isSuccessful()) {
+            throw new IOException(this.url + " request wasn't successful: " + this.response);
+        }
+    }
+
+    private Request.Builder newRequest() {
         Request.Builder builder = new Request.Builder().url(this.url);
 
         if (this.post != null) {
@@ -253,23 +317,31 @@ public final class Download {
             builder.cacheControl(this.cacheControl);
         }
 
-        this.response = httpClient.newCall(builder.build()).execute();
+        return builder;
+    }
 
-        if (this.response == null || !this.response.isSuccessful()) {
-            throw new IOException(this.url + " request wasn't successful: " + this.response);
+    /**
+     * Makes a request only to look at the response's status and headers. The caller
+     * must close the response once done with it, since until the body is closed it
+     * holds onto a connection and a permit from the host's {@link ConcurrencyLimiter}.
+     *
+     * This doesn't touch the response used for downloading the file.
+     */
+    private Response probe() throws IOException {
+        Response response = httpClient.newCall(this.newRequest().build()).execute();
+
+        if (!response.isSuccessful()) {
+            response.close();
+            throw new IOException(this.url + " request wasn't successful: " + response);
         }
+
+        return response;
     }
 
     public int code() {
-        try {
-            this.execute();
-            return this.response.code();
+        try (Response response = this.probe()) {
+            return response.code();
         } catch (Exception e) {
-            if (this.response != null) {
-                this.response.close();
-                this.response = null;
-            }
-
             LogManager.logStackTrace(e);
             return -1;
         }
@@ -280,15 +352,18 @@ public final class Download {
     }
 
     public int getResponseCode() throws IOException {
-        this.execute();
-
-        return this.response.code();
+        try (Response response = this.probe()) {
+            return response.code();
+        }
     }
 
     private String getHashFromURL() throws IOException {
-        this.execute();
+        String etag;
+
+        try (Response response = this.probe()) {
+            etag = response.header("ETag");
+        }
 
-        String etag = this.response.header("ETag");
         if (etag == null) {
             return "-";
         }
@@ -316,8 +391,11 @@ public final class Download {
     public long getFilesize() {
         try {
             if (this.size == -1L) {
-                this.execute();
-                long size = Long.parseLong(this.response.header("Content-Length"));
+                long size;
+
+                try (Response response = this.probe()) {
+                    size = Long.parseLong(response.header("Content-Length"));
+                }
 
                 if (size == -1L) {
                     this.size = 0L;
@@ -326,16 +404,51 @@ public final class Download {
                 }
             }
         } catch (Exception ignored) {
-            if (this.response != null) {
-                this.response.close();
-                this.response = null;
-            }
             return -1;
         }
 
         return this.size;
     }
 
+    /**
+     * Gets the hash (or Curse fingerprint) this file is expected to have, or null if
+     * it's not known.
+     */
+    private String getExpectedHash() {
+        if (this.fingerprint != null) {
+            return String.valueOf(this.fingerprint);
+        }
+
+        if (Hashing.HashCode.fromString(this.getHash()).equals(Hashing.HashCode.EMPTY)) {
+            return null;
+        }
+
+        return this.hash;
+    }
+
+    /**
+     * Verifies the existing files of all the given downloads checked by SHA-1 at once,
+     * hashing them in parallel, so that working out what needs to be downloaded
+     * doesn't have to hash them one by one.
+     */
+    static void verifyAll(Collection<Download> downloads) {
+        Map<Path, String> toVerify = new HashMap<>();
+
+        for (Download download : downloads) {
+            if (download.to != null && download.fingerprint == null && download.hash != null
+                    && download.hash.length() == 40 && Files.isRegularFile(download.to)
+                    && !VerifiedFileIndex.isVerified(download.to, download.hash)) {
+                toVerify.putIfAbsent(download.to, download.hash);
+            }
+        }
+
+        Hashing.sha1All(toVerify.keySet()).forEach((path, hash) -> {
+            if (hash.equals(Hashing.HashCode.fromString(toVerify.get(path)))) {
+                VerifiedFileIndex.markVerified(path, toVerify.get(path));
+            }
+        });
+    }
+
     public boolean needToDownload() {
         if (this.to == null) {
             return true;
@@ -344,16 +457,14 @@ public final class Download {
         if (Files.exists(this.to)) {
             if (this.fingerprint != null) {
                 try {
-                    if (Hashing.murmur(this.to) == this.fingerprint) {
+                    if (this.fingerprintMatches(this.to)) {
                         return false;
                     }
                 } catch (IOException e) {
                     LogManager.error("Error getting murmur hash");
                     return false;
                 }
-            } else if (this.md5() && Hashing.md5(this.to).equals(Hashing.HashCode.fromString(this.getHash()))) {
-                return false;
-            } else if (Hashing.sha1(this.to).equals(Hashing.HashCode.fromString(this.getHash()))) {
+            } else if (this.getExpectedHash() != null && this.hashMatches(this.to)) {
                 return false;
             }
 
@@ -366,28 +477,201 @@ public final class Download {
         return true;
     }
 
-    private void downloadDirect() {
-        try (FileChannel fc = FileChannel.open(this.to, Utils.WRITE);
+    private Path getPartPath() {
+        return this.to.resolveSibling(this.to.getFileName().toString() + ".part");
+    }
+
+    private Path getPartMetaPath() {
+        return this.to.resolveSibling(this.to.getFileName().toString() + ".part.meta");
+    }
+
+    /**
+     * Reads the validator of the .part file left behind by an earlier download of this
+     * file from the same url, or null if there isn't one.
+     */
+    private String readPartValidator() {
+        Path metaPath = this.getPartMetaPath();
+
+        if (!Files.exists(metaPath) || !Files.exists(this.getPartPath())) {
+            return null;
+        }
+
+        try {
+            List<String> lines = Files.readAllLines(metaPath, StandardCharsets.UTF_8);
+
+            if (lines.size() == 2 && lines.get(0).equals(this.url) && !lines.get(1).isEmpty()) {
+                return lines.get(1);
+            }
+        } catch (IOException e) {
+            LogManager.debug("Couldn't read " + metaPath + ": " + e.getMessage(), 3);
+        }
+
+        return null;
+    }
+
+    private void setPartValidator(String validator) {
+        this.partValidator = validator;
+
+        Path metaPath = this.getPartMetaPath();
+
+        try {
+            if (validator == null) {
+                Files.deleteIfExists(metaPath);
+            } else {
+                Files.write(metaPath, (this.url + "\n" + validator).getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            LogManager.debug("Couldn't update " + metaPath + ": " + e.getMessage(), 3);
+        }
+    }
+
+    private String getValidator() {
+        String etag = this.response.header("ETag");
+
+        // weak validators cannot be used with If-Range
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+
+        return this.response.header("Last-Modified");
+    }
+
+    /**
+     * Streams the current response body into the given file starting at the given
+     * position, dropping anything in the file past that point.
+     *
+     * When the whole file is being downloaded and is verified by MD5 or SHA-1, it's
+     * hashed as it's written so it doesn't need to be read back from disk to verify it.
+     *
+     * @return if the whole body was written without the connection dropping
+     */
+    private boolean downloadDirect(Path path, long position) {
+        this.partHash = null;
+
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
                 ReadableByteChannel rbc = Channels.newChannel(this.response.body().byteStream())) {
-            fc.transferFrom(rbc, 0, Long.MAX_VALUE);
+            fc.truncate(position);
+
+            // murmur fingerprints are seeded with the length of the file minus its whitespace, so
+            // they can't be worked out until the whole file is on disk
+            if (position == 0L && this.fingerprint == null && this.hash != null && !this.hash.equals("-")) {
+                Hashing.DigestingChannel digestingChannel = Hashing.digesting(rbc, this.md5() ? "MD5" : "SHA-1");
+                writeFully(digestingChannel, fc, position);
+                this.partHash = digestingChannel.hash();
+            } else {
+                writeFully(rbc, fc, position);
+            }
+
+            return true;
         } catch (Exception e) {
             LogManager.logStackTrace("Failed to download file " + this.to, e, false);
+            return false;
         }
     }
 
-    private boolean hashMatches() {
-        if (Files.exists(this.to)) {
+    /**
+     * Copies everything from the given channel into the file at the given position.
+     *
+     * FileChannel.transferFrom isn't used here as it swallows read errors once it's
+     * copied anything, which makes a dropped connection look like a finished
+     * download.
+     */
+    private static void writeFully(ReadableByteChannel rbc, FileChannel fc, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+        while (rbc.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += fc.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+
+    private boolean partHashMatches(Path partPath) {
+        if (this.partHash != null) {
+            return this.partHash.equals(Hashing.HashCode.fromString(this.getHash()));
+        }
+
+        return fileHashMatches(partPath);
+    }
+
+    private boolean movePartIntoPlace(Path partPath) {
+        try {
+            try {
+                Files.move(partPath, this.to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partPath, this.to, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LogManager.logStackTrace("Failed to move " + partPath + " to " + this.to, e, false);
+            return false;
+        }
+
+        this.setPartValidator(null);
+        VerifiedFileIndex.markVerified(this.to, this.getExpectedHash());
+        DownloadStore.add(this.to, this.getExpectedHash());
+        return true;
+    }
+
+    private boolean fingerprintMatches(Path path) throws IOException {
+        String expected = String.valueOf(this.fingerprint);
+
+        if (VerifiedFileIndex.isVerified(path, expected)) {
+            return true;
+        }
+
+        if (Hashing.murmur(path) == this.fingerprint) {
+            VerifiedFileIndex.markVerified(path, expected);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if the given file has the expected hash, skipping hashing it if it's
+     * already been verified and hasn't changed since.
+     */
+    private boolean hashMatches(Path path) {
+        if (Files.exists(path)) {
             if (this.fingerprint != null) {
                 try {
-                    return Hashing.murmur(this.to) == this.fingerprint;
+                    return this.fingerprintMatches(path);
+                } catch (IOException e) {
+                    LogManager.error("Error getting murmur hash");
+                    return false;
+                }
+            }
+
+            String expected = this.getExpectedHash();
+
+            if (VerifiedFileIndex.isVerified(path, expected)) {
+                return true;
+            }
+
+            if (this.fileHashMatches(path)) {
+                VerifiedFileIndex.markVerified(path, expected);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean fileHashMatches(Path path) {
+        if (Files.exists(path)) {
+            if (this.fingerprint != null) {
+                try {
+                    return Hashing.murmur(path) == this.fingerprint;
                 } catch (IOException e) {
                     LogManager.error("Error getting murmur hash");
                     return false;
                 }
             } else if (this.md5()) {
-                return Hashing.md5(this.to).equals(Hashing.HashCode.fromString(this.getHash()));
+                return Hashing.md5(path).equals(Hashing.HashCode.fromString(this.getHash()));
             } else {
-                return Hashing.sha1(this.to).equals(Hashing.HashCode.fromString(this.getHash()));
+                return Hashing.sha1(path).equals(Hashing.HashCode.fromString(this.getHash()));
             }
         }
 
@@ -399,15 +683,38 @@ public final class Download {
             return false;
         }
 
-        // if file exists, delete it
-        if (Files.exists(this.to)) {
-            FileUtils.delete(this.to);
+        Path partPath = this.getPartPath();
+        long resumeFrom = 0L;
+
+        // pick up a partial file left behind by an earlier run
+        if (this.partValidator == null) {
+            this.partValidator = this.readPartValidator();
+        }
+
+        // only resume a partial file we wrote ourselves, since we know what validator it
+        // came from
+        if (Files.exists(partPath)) {
+            if (this.partValidator == null) {
+                FileUtils.delete(partPath);
+            } else {
+                try {
+                    resumeFrom = Files.size(partPath);
+                } catch (IOException e) {
+                    resumeFrom = 0L;
+                }
+            }
         }
 
         try {
             // open the connection
-            this.execute();
+            this.execute(resumeFrom, this.partValidator);
         } catch (IOException e) {
+            // the partial file is no longer valid for the server so start again
+            if (this.response != null && this.response.code() == 416) {
+                FileUtils.delete(partPath);
+                this.setPartValidator(null);
+            }
+
             if (this.response != null) {
                 this.response.close();
                 this.response = null;
@@ -415,17 +722,33 @@ public final class Download {
 
             LogManager.logStackTrace(e);
 
-            return false;
+            return this.downloadRec(attempt + 1);
+        }
+
+        // if the server sent the whole file, the If-Range check failed or ranges aren't
+        // supported, so start the partial file again
+        if (this.response.code() != 206) {
+            resumeFrom = 0L;
+        } else {
+            LogManager.debug("Resuming download of " + this.url + " from byte " + resumeFrom);
         }
 
+        this.setPartValidator(this.getValidator());
+
         // download the file to disk
-        this.downloadDirect();
+        boolean complete = this.downloadDirect(partPath, resumeFrom);
 
-        // check if the hash matches
-        if (hashMatches()) {
+        // check if the hash matches and move it into place
+        if (complete && partHashMatches(partPath) && this.movePartIntoPlace(partPath)) {
             return true;
         }
 
+        // the whole file came down but is wrong, so none of it can be reused
+        if (complete && attempt < MAX_ATTEMPTS) {
+            FileUtils.delete(partPath);
+            this.setPartValidator(null);
+        }
+
         // if the hash doesn't match, attempt again
         LogManager.debug("Failed downloading " + this.url + " on attempt " + attempt);
         return this.downloadRec(attempt + 1);
@@ -434,7 +757,7 @@ public final class Download {
     public void copy() {
         if (this.copyTo != null) {
             if (Files.exists(this.copyTo)) {
-                if (hashMatches()) {
+                if (hashMatches(this.copyTo)) {
                     return;
                 }
 
@@ -445,136 +768,263 @@ public final class Download {
                 FileUtils.createDirectory(this.copyTo.getParent());
             }
 
-            FileUtils.copyFile(this.to, this.copyTo, true);
+            FileUtils.linkFile(this.to, this.copyTo, true);
         }
     }
 
+    /**
+     * Puts the file in place from the download store if it's been downloaded before,
+     * no matter where to.
+     *
+     * @return if the file was taken from the store
+     */
+    private boolean linkFromStore() {
+        if (this.to == null || this.fingerprint != null) {
+            return false;
+        }
+
+        Path object = DownloadStore.get(this.getExpectedHash());
+
+        if (object == null || !FileUtils.linkFile(object, this.to, true)) {
+            return false;
+        }
+
+        LogManager.debug("Using " + this.to.getFileName() + " from the download store", 3);
+        VerifiedFileIndex.markVerified(this.to, this.getExpectedHash());
+        return true;
+    }
+
     public void downloadFile() throws IOException {
         if (this.instanceInstaller != null && this.instanceInstaller.isCancelled()) {
             return;
         }
 
         if (!this.needToDownload()) {
-            if (this.copyTo != null) {
-                if (this.fingerprint != null) {
-                    try {
-                        if (Hashing.murmur(this.copyTo) != this.fingerprint) {
-                            this.copy();
-                        }
-                    } catch (IOException ignored) {
-                    }
-                } else {
-                    Hashing.HashCode fileHash = Hashing.HashCode.EMPTY;
-                    if (Files.exists(this.copyTo)) {
-                        if (this.md5()) {
-                            fileHash = Hashing.md5(this.copyTo);
-                        } else {
-                            fileHash = Hashing.sha1(this.copyTo);
-                        }
-                    }
-
-                    if (!fileHash.equals(Hashing.HashCode.fromString(this.getHash()))) {
-                        this.copy();
-                    }
-                }
-            }
+            DownloadStore.add(this.to, this.getExpectedHash());
+            this.copy();
 
             runPostProcessors();
             return;
         }
 
-        this.execute();
+        if (this.linkFromStore()) {
+            this.copy();
 
-        Path oldPath = null;
-        if (Files.exists(this.to)) {
-            oldPath = this.to.resolveSibling(this.to.getFileName().toString() + ".bak");
-            FileUtils.moveFile(this.to, oldPath, true);
+            runPostProcessors();
+            return;
         }
 
-        if (Files.exists(this.to) && Files.isRegularFile(this.to)) {
-            FileUtils.delete(this.to);
-        }
+        this.execute();
 
         if (!Files.isDirectory(this.to.getParent())) {
             FileUtils.createDirectory(this.to.getParent());
         }
 
+        // the download is written to a .part file next to the destination and only moved
+        // over the old file once it's complete, so a failed download never loses it
+        Path partPath = this.getPartPath();
+
         Hashing.HashCode expected = null;
 
         if (this.fingerprint == null) {
             expected = Hashing.HashCode.fromString(this.getHash());
         }
 
-        if (expected != null && expected.equals(Hashing.HashCode.EMPTY)) {
-            this.downloadDirect();
+        if (this.segmented && this.downloadSegmented(partPath, expected)) {
+            this.copy();
+        } else if (expected != null && expected.equals(Hashing.HashCode.EMPTY)) {
+            // a failed segmented download will have closed the original response
+            if (this.response == null) {
+                this.execute();
+            }
+
+            if (this.downloadDirect(partPath, 0L)) {
+                this.movePartIntoPlace(partPath);
+            }
         } else {
             boolean downloaded = this.downloadRec(1);
 
             if (!downloaded) {
-                if (this.response.header("content-type").contains("text/html")) {
+                if (this.response != null && this.response.header("content-type", "").contains("text/html")
+                        && Files.exists(partPath)) {
                     LogManager.error(
                             "The response from this request was a HTML response. This is usually caused by an antivirus or firewall software intercepting and rewriting the response. The response is below.");
 
-                    LogManager.error(new String(Files.readAllBytes(this.to)));
+                    LogManager.error(new String(Files.readAllBytes(partPath)));
+                }
+
+                if (Files.exists(partPath)) {
+                    FileUtils.copyFile(partPath, FileSystem.FAILED_DOWNLOADS.resolve(this.to.getFileName()), true);
                 }
 
-                FileUtils.copyFile(this.to, FileSystem.FAILED_DOWNLOADS);
                 if (fingerprint != null) {
                     LogManager.error("Error downloading " + this.to.getFileName() + " from " + this.url + ". Expected"
                             + " fingerprint of " + fingerprint.toString() + " (with size of " + this.size + ") but got "
-                            + Hashing.murmur(this.to) + " (with size of "
-                            + (Files.exists(this.to) ? Files.size(this.to) : 0)
+                            + (Files.exists(partPath) ? Hashing.murmur(partPath) : 0) + " (with size of "
+                            + (Files.exists(partPath) ? Files.size(partPath) : 0)
                             + ") instead. Copied to FailedDownloads folder & cancelling install!");
                 } else {
                     LogManager.error("Error downloading " + this.to.getFileName() + " from " + this.url + ". Expected"
                             + " hash of " + expected.toString() + " (with size of " + this.size + ") but got "
-                            + Hashing.sha1(this.to) + " (with size of "
-                            + (Files.exists(this.to) ? Files.size(this.to) : 0)
+                            + Hashing.sha1(partPath) + " (with size of "
+                            + (Files.exists(partPath) ? Files.size(partPath) : 0)
                             + ") instead. Copied to FailedDownloads folder & cancelling install!");
                 }
+
+                if (Files.exists(partPath)) {
+                    FileUtils.delete(partPath);
+                }
+                this.setPartValidator(null);
+
                 if (this.instanceInstaller != null) {
                     this.instanceInstaller.cancel(true);
                 }
             }
 
-            if (downloaded && this.copyTo != null) {
-                if (this.fingerprint != null) {
-                    try {
-                        if (Hashing.murmur(this.copyTo) != this.fingerprint) {
-                            this.copy();
-                        }
-                    } catch (IOException ignored) {
-                    }
-                } else {
-                    Hashing.HashCode fileHash2 = Hashing.HashCode.EMPTY;
-                    if (Files.exists(this.copyTo)) {
-                        if (this.md5()) {
-                            fileHash2 = Hashing.md5(this.copyTo);
-                        } else {
-                            fileHash2 = Hashing.sha1(this.copyTo);
-                        }
-                    }
-
-                    if (!fileHash2.equals(expected)) {
-                        this.copy();
-                    }
-                }
+            if (downloaded) {
+                this.copy();
             }
         }
 
         runPostProcessors();
+    }
+
+    /**
+     * Downloads the file as a few ranges in parallel, each written straight into its
+     * place in a preallocated .part file. Once every range is in, the whole file is
+     * verified and moved into place.
+     *
+     * @return if the file was downloaded, otherwise it should be downloaded normally
+     */
+    private boolean downloadSegmented(Path partPath, Hashing.HashCode expected) {
+        if (this.post != null || this.response.code() != 200
+                || !"bytes".equalsIgnoreCase(this.response.header("Accept-Ranges"))) {
+            return false;
+        }
+
+        long totalSize = this.response.body().contentLength();
+        if (totalSize < SEGMENTED_MIN_SIZE || (this.size > 0 && this.size != totalSize)) {
+            return false;
+        }
+
+        // a partial file from an earlier run can be carried on with normally
+        if (this.readPartValidator() != null) {
+            return false;
+        }
+
+        String validator = this.getValidator();
 
-        if (oldPath != null && Files.exists(oldPath)) {
-            FileUtils.delete(oldPath);
+        // the segments make their own requests, so there's no need to keep this one open
+        this.response.close();
+        this.response = null;
+
+        int segmentCount = (int) Math.min(MAX_SEGMENTS, totalSize / MIN_SEGMENT_SIZE);
+        long segmentSize = totalSize / segmentCount;
+
+        List<Segment> segments = new ArrayList<>();
+        for (int i = 0; i < segmentCount; i++) {
+            long start = i * segmentSize;
+            long end = i == segmentCount - 1 ? totalSize - 1 : start + segmentSize - 1;
+            segments.add(new Segment(start, end));
         }
+
+        LogManager.debug("Downloading " + this.url + " in " + segmentCount + " segments");
+
+        try {
+            try (RandomAccessFile file = new RandomAccessFile(partPath.toFile(), "rw")) {
+                file.setLength(totalSize);
+            }
+
+            try (FileChannel fc = FileChannel.open(partPath, StandardOpenOption.WRITE)) {
+                CompletableFuture.allOf(segments.stream().map(segment -> CompletableFuture
+                        .runAsync(() -> this.downloadSegmentWithRetries(fc, segment, validator), SEGMENT_EXECUTOR))
+                        .toArray(CompletableFuture[]::new)).join();
+            }
+        } catch (IOException | CompletionException e) {
+            LogManager.logStackTrace("Failed to download " + this.url + " in segments", e, false);
+            FileUtils.delete(partPath);
+            return false;
+        }
+
+        boolean valid;
+        if (expected == null || expected.equals(Hashing.HashCode.EMPTY)) {
+            valid = partPath.toFile().length() == totalSize;
+        } else {
+            valid = this.fileHashMatches(partPath);
+        }
+
+        if (!valid || !this.movePartIntoPlace(partPath)) {
+            LogManager.debug("Segmented download of " + this.url + " didn't match, downloading normally");
+            FileUtils.delete(partPath);
+            return false;
+        }
+
+        return true;
     }
 
-    private void runPostProcessors() {
-        if (Files.exists(this.to) && this.unzipTo != null) {
-            FileUtils.createDirectory(this.unzipTo);
+    private void downloadSegmentWithRetries(FileChannel fc, Segment segment, String validator) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (this.isCancelled()) {
+                throw new CompletionException(new IOException("Download of " + this.url + " was cancelled"));
+            }
 
-            ZipUtil.unpack(this.to.toFile(), this.unzipTo.toFile());
+            try {
+                this.downloadSegment(fc, segment, validator);
+                return;
+            } catch (IOException e) {
+                // the next attempt carries on from however far this one got
+                LogManager.debug("Failed downloading segment of " + this.url + " on attempt " + attempt + ": "
+                        + e.getMessage());
+            }
         }
+
+        throw new CompletionException(new IOException("Failed to download bytes " + segment.position + "-"
+                + segment.end + " of " + this.url));
+    }
+
+    private void downloadSegment(FileChannel fc, Segment segment, String validator) throws IOException {
+        Request.Builder builder = new Request.Builder().url(this.url).header("Range",
+                "bytes=" + segment.position + "-" + segment.end);
+
+        if (validator != null) {
+            builder.header("If-Range", validator);
+        }
+
+        try (Response segmentResponse = this.httpClient.newCall(builder.build()).execute()) {
+            String contentRange = segmentResponse.header("Content-Range", "");
+
+            if (segmentResponse.code() != 206 || !contentRange.startsWith("bytes " + segment.position + "-")) {
+                throw new IOException(this.url + " didn't return the requested range: " + segmentResponse);
+            }
+
+            try (ReadableByteChannel rbc = Channels.newChannel(segmentResponse.body().byteStream())) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+                while (segment.position <= segment.end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), segment.end - segment.position + 1));
+
+                    if (rbc.read(buffer) == -1) {
+                        throw new EOFException("Connection closed before segment of " + this.url + " finished");
+                    }
+
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        segment.position += fc.write(buffer, segment.position);
+                    }
+                }
+            }
+        }
+    }
+
+    private void runPostProcessors() throws IOException {
+        if (Files.exists(this.to) && this.unzipTo != null) {
+            ZipExtractor.extract(this.to, this.unzipTo);
+        }
+    }
+
+    boolean isCancelled() {
+        return this.instanceInstaller != null && this.instanceInstaller.isCancelled();
     }
 
     public String getPrintableFileName() {
@@ -600,4 +1050,15 @@ public final class Download {
     public int hashCode() {
         return this.to.hashCode();
     }
+
+    private static final class Segment {
+        // the next byte to download, which moves forward as the segment is written
+        private long position;
+        private final long end;
+
+        private Segment(long start, long end) {
+            this.position = start;
+            this.end = end;
+        }
+    }
 }
@@ -17,19 +17,37 @@
  */
 package com.atlauncher.network;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.atlauncher.App;
 import com.atlauncher.managers.LogManager;
+import com.atlauncher.utils.Hashing;
 
 @SuppressWarnings("serial")
 public final class DownloadPool extends LinkedList<Download> {
+    /**
+     * The executor shared by every pool. It's sized to the concurrent connections
+     * setting and lets its threads die off when nothing is downloading. How many of
+     * those actually talk to a single host at once is decided by the
+     * {@link ConcurrencyLimiter} for that host.
+     */
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
     private final boolean wait;
 
+    // if this pool was made by downsize(), so everything in it is known to need downloading
+    private boolean downsized = false;
+
     public DownloadPool(boolean wait) {
         this.wait = wait;
     }
@@ -38,17 +56,99 @@ public final class DownloadPool extends LinkedList<Download> {
         this(true);
     }
 
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        int threads = Math.max(1, App.settings.concurrentConnections);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "DownloadPool-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static ThreadPoolExecutor getExecutor() {
+        int threads = Math.max(1, App.settings.concurrentConnections);
+
+        synchronized (EXECUTOR) {
+            // the core size can never be above the maximum size, so change them in the right order
+            if (threads > EXECUTOR.getMaximumPoolSize()) {
+                EXECUTOR.setMaximumPoolSize(threads);
+                EXECUTOR.setCorePoolSize(threads);
+            } else if (threads < EXECUTOR.getMaximumPoolSize()) {
+                EXECUTOR.setCorePoolSize(threads);
+                EXECUTOR.setMaximumPoolSize(threads);
+            }
+        }
+
+        return EXECUTOR;
+    }
+
+    /**
+     * Runs the given task for each download on the shared executor, returning a
+     * future which completes once they've all finished.
+     */
+    private static CompletableFuture<Void> runAll(List<Download> downloads, Consumer<Download> task) {
+        ThreadPoolExecutor executor = getExecutor();
+
+        return CompletableFuture.allOf(downloads.stream().map(dl -> CompletableFuture.runAsync(() -> task.accept(dl),
+                executor)).toArray(CompletableFuture[]::new));
+    }
+
     public void downloadAll() {
-        ExecutorService executor = Executors.newFixedThreadPool(App.settings.concurrentConnections);
+        this.downloadAll(null);
+    }
+
+    /**
+     * Downloads everything in the pool.
+     *
+     * @param onDownloaded called with each download as soon as it's finished, on the
+     *                     thread that downloaded it, so work on the file can start
+     *                     while the rest are still downloading
+     */
+    public void downloadAll(Consumer<Download> onDownloaded) {
+        final List<Download> downloads;
         synchronized (this) {
-            for (Download dl : this) {
-                executor.execute(new Downloader(dl));
-            }
+            downloads = new ArrayList<>(this);
         }
-        executor.shutdown();
-        if (this.wait) {
-            while (!executor.isTerminated()) {
+
+        final List<Download> failed = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Void> future = runAll(downloads, dl -> {
+            if (dl.isCancelled()) {
+                return;
             }
+
+            try {
+                if (dl.needToDownload()) {
+                    dl.downloadFile();
+                } else {
+                    dl.copy();
+                }
+
+                if (onDownloaded != null && !dl.isCancelled()) {
+                    onDownloaded.accept(dl);
+                }
+            } catch (Exception e) {
+                failed.add(dl);
+                LogManager.logStackTrace("Error trying to download " + dl.to.getFileName(), e);
+            }
+        }).whenComplete((result, throwable) -> {
+            VerifiedFileIndex.save();
+            LogManager.debug("Hash cache stats: " + Hashing.getCacheStats(), 3);
+
+            if (!failed.isEmpty()) {
+                LogManager.error(failed.size() + " of " + downloads.size() + " downloads failed: " + failed.stream()
+                        .map(Download::getPrintableFileName).collect(Collectors.joining(", ")));
+            }
+        });
+
+        if (this.wait) {
+            future.join();
         }
     }
 
@@ -56,7 +156,7 @@ public final class DownloadPool extends LinkedList<Download> {
         long size = 0;
         synchronized (this) {
             for (Download dl : this) {
-                if (dl.needToDownload()) {
+                if (this.downsized || dl.needToDownload()) {
                     size += dl.size;
                 }
             }
@@ -66,11 +166,18 @@ public final class DownloadPool extends LinkedList<Download> {
 
     public DownloadPool downsize() {
         final DownloadPool pool = new DownloadPool(this.wait);
+        pool.downsized = true;
         final List<Download> downloads = this.stream().distinct().collect(Collectors.toList());
 
-        ExecutorService executor = Executors.newFixedThreadPool(App.settings.concurrentConnections);
-        for (final Download dl : downloads) {
-            executor.submit(() -> {
+        // hashing is limited by CPU rather than connections, so do it all up front on every core
+        Download.verifyAll(downloads);
+
+        runAll(downloads, dl -> {
+            if (dl.isCancelled()) {
+                return;
+            }
+
+            try {
                 if (dl.needToDownload()) {
                     synchronized (pool) {
                         pool.add(dl);
@@ -78,12 +185,12 @@ public final class DownloadPool extends LinkedList<Download> {
                 } else {
                     dl.copy();
                 }
-            });
-        }
+            } catch (Exception e) {
+                LogManager.logStackTrace("Error checking if " + dl.getPrintableFileName() + " needs downloading", e);
+            }
+        }).join();
 
-        executor.shutdown();
-        while (!executor.isTerminated()) {
-        }
+        VerifiedFileIndex.save();
 
         return pool;
     }
@@ -99,25 +206,4 @@ public final class DownloadPool extends LinkedList<Download> {
 
         return false;
     }
-
-    private static final class Downloader implements Runnable {
-        private final Download dl;
-
-        private Downloader(Download dl) {
-            this.dl = dl;
-        }
-
-        @Override
-        public void run() {
-            try {
-                if (this.dl.needToDownload()) {
-                    this.dl.downloadFile();
-                } else {
-                    this.dl.copy();
-                }
-            } catch (Exception e) {
-                LogManager.logStackTrace("Error trying to download " + this.dl.to.getFileName(), e);
-            }
-        }
-    }
 }
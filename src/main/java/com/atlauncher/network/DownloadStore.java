@@ -0,0 +1,133 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.network;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.atlauncher.FileSystem;
+import com.atlauncher.managers.LogManager;
+import com.atlauncher.utils.FileUtils;
+import com.atlauncher.utils.Hashing;
+
+/**
+ * Stores every verified download by its hash, much like assets/objects, so a file
+ * only needs to be downloaded once no matter what it's called or where it's needed.
+ *
+ * Objects are hard links to the downloaded file, so they take up no extra space, and
+ * are handed out as hard links too. When hard links aren't supported, nothing is
+ * stored and downloads behave as they always have.
+ */
+public final class DownloadStore {
+    private DownloadStore() {
+    }
+
+    /**
+     * Only MD5 and SHA-1 hashes are used, as Curse fingerprints are too short to key
+     * files by.
+     */
+    private static boolean isStorable(String hash) {
+        return hash != null && (hash.length() == 32 || hash.length() == 40) && hash.matches("[0-9a-fA-F]+");
+    }
+
+    private static Path getObjectPath(String hash) {
+        String key = hash.toLowerCase();
+
+        return FileSystem.DOWNLOAD_OBJECTS.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static boolean isIntact(Path object, String hash) {
+        if (VerifiedFileIndex.isVerified(object, hash)) {
+            return true;
+        }
+
+        Hashing.HashCode expected = Hashing.HashCode.fromString(hash);
+        Hashing.HashCode actual = hash.length() == 40 ? Hashing.sha1(object) : Hashing.md5(object);
+
+        if (actual.equals(expected)) {
+            VerifiedFileIndex.markVerified(object, hash);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds the given file to the store if there isn't already an object with its
+     * hash. The file should have already been verified to have the given hash.
+     *
+     * @param file the file to store
+     * @param hash the SHA-1 or MD5 hash of the file
+     */
+    public static void add(Path file, String hash) {
+        if (!isStorable(hash)) {
+            return;
+        }
+
+        Path object = getObjectPath(hash);
+
+        try {
+            if (Files.exists(object)) {
+                if (Files.isSameFile(file, object)) {
+                    return;
+                }
+
+                // an object that's been changed since it was stored can't be handed out
+                if (isIntact(object, hash)) {
+                    return;
+                }
+
+                Files.delete(object);
+            }
+
+            Files.createDirectories(object.getParent());
+            Files.createLink(object, file);
+            VerifiedFileIndex.markVerified(object, hash);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            LogManager.debug("Couldn't add " + file + " to the download store: " + e.getMessage(), 3);
+        }
+    }
+
+    /**
+     * Gets the stored object with the given hash, if there is one that hasn't been
+     * changed since it was stored.
+     *
+     * @param hash the SHA-1 or MD5 hash of the file
+     * @return the path to the object, or null if there isn't a usable one
+     */
+    public static Path get(String hash) {
+        if (!isStorable(hash)) {
+            return null;
+        }
+
+        Path object = getObjectPath(hash);
+
+        if (!Files.isRegularFile(object)) {
+            return null;
+        }
+
+        if (!isIntact(object, hash)) {
+            LogManager.warn("Removing " + object + " from the download store as it was changed since it was stored");
+            FileUtils.delete(object);
+            return null;
+        }
+
+        return object;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.network;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.atlauncher.App;
+import com.atlauncher.FileSystem;
+import com.atlauncher.managers.LogManager;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Keeps track of files that have had their hash verified, along with the size,
+ * modified time and file key (inode) they had at the time. As long as those
+ * haven't changed, the file is assumed to still be valid so it doesn't need to be
+ * hashed again.
+ *
+ * Launching with --deep-verify ignores anything in this index from before the
+ * launcher was started, so every file is hashed at least once.
+ *
+ * Entries for files which no longer exist are dropped when the index is loaded,
+ * and once it gets too big the ones verified longest ago are dropped when it's
+ * saved, so it doesn't keep growing as instances and downloads come and go.
+ */
+public final class VerifiedFileIndex {
+    private static final Gson GSON = new Gson();
+    private static final Type TYPE = new TypeToken<ConcurrentHashMap<String, Entry>>() {
+    }.getType();
+
+    private static final int MAX_ENTRIES = 50000;
+
+    private static Map<String, Entry> entries = null;
+    private static volatile boolean dirty = false;
+
+    private VerifiedFileIndex() {
+    }
+
+    /**
+     * Checks if the given file was previously verified to have the given hash, and
+     * hasn't changed on disk since.
+     *
+     * @param file the file to check
+     * @param hash the expected hash (or Curse fingerprint) of the file
+     */
+    public static boolean isVerified(Path file, String hash) {
+        if (hash == null) {
+            return false;
+        }
+
+        String key = getKey(file);
+        Entry entry = getEntries().get(key);
+
+        // when deep verifying, only trust files that have been verified since launching
+        if (entry == null || (App.deepVerify && !entry.verifiedThisSession)) {
+            return false;
+        }
+
+        Entry current = Entry.forFile(file, hash);
+
+        if (current != null && current.equals(entry)) {
+            return true;
+        }
+
+        getEntries().remove(key);
+        dirty = true;
+        return false;
+    }
+
+    /**
+     * Records that the given file has just been verified to have the given hash.
+     *
+     * @param file the file that was verified
+     * @param hash the hash (or Curse fingerprint) the file was verified against
+     */
+    public static void markVerified(Path file, String hash) {
+        if (hash == null) {
+            return;
+        }
+
+        Entry entry = Entry.forFile(file, hash);
+
+        if (entry != null) {
+            entry.verified = System.currentTimeMillis();
+            entry.verifiedThisSession = true;
+            getEntries().put(getKey(file), entry);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the index to disk if anything has changed since it was last saved.
+     */
+    public static synchronized void save() {
+        if (!dirty || entries == null) {
+            return;
+        }
+
+        dirty = false;
+
+        if (entries.size() > MAX_ENTRIES) {
+            entries.entrySet().stream().sorted(Comparator.comparingLong(entry -> entry.getValue().verified))
+                    .limit(entries.size() - MAX_ENTRIES).map(Map.Entry::getKey).collect(Collectors.toList())
+                    .forEach(entries::remove);
+        }
+
+        Path tempFile = FileSystem.VERIFIED_FILES_INDEX.resolveSibling("verifiedfiles.json.tmp");
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            GSON.toJson(entries, TYPE, writer);
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error saving verified file index", e, false);
+            return;
+        }
+
+        try {
+            try {
+                Files.move(tempFile, FileSystem.VERIFIED_FILES_INDEX, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, FileSystem.VERIFIED_FILES_INDEX, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error saving verified file index", e, false);
+        }
+    }
+
+    private static synchronized Map<String, Entry> getEntries() {
+        if (entries == null) {
+            entries = load();
+        }
+
+        return entries;
+    }
+
+    private static Map<String, Entry> load() {
+        if (Files.exists(FileSystem.VERIFIED_FILES_INDEX)) {
+            try (Reader reader = Files.newBufferedReader(FileSystem.VERIFIED_FILES_INDEX, StandardCharsets.UTF_8)) {
+                Map<String, Entry> loaded = GSON.fromJson(reader, TYPE);
+
+                if (loaded != null) {
+                    if (loaded.keySet().removeIf(key -> !exists(key))) {
+                        dirty = true;
+                    }
+
+                    return loaded;
+                }
+            } catch (IOException | JsonParseException e) {
+                LogManager.logStackTrace("Error loading verified file index, starting a new one", e, false);
+            }
+        }
+
+        return new ConcurrentHashMap<>();
+    }
+
+    private static boolean exists(String key) {
+        try {
+            return Files.isRegularFile(Paths.get(key));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static String getKey(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static final class Entry {
+        public long size;
+        public long modified;
+        public String fileKey;
+        public String hash;
+
+        // when the file was last hashed, so the oldest entries can be dropped first
+        public long verified;
+
+        private transient boolean verifiedThisSession = false;
+
+        private static Entry forFile(Path file, String hash) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+                if (!attributes.isRegularFile()) {
+                    return null;
+                }
+
+                Entry entry = new Entry();
+                entry.size = attributes.size();
+                entry.modified = attributes.lastModifiedTime().toMillis();
+                entry.fileKey = attributes.fileKey() == null ? null : attributes.fileKey().toString();
+                entry.hash = hash.toLowerCase();
+                return entry;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+
+            Entry other = (Entry) obj;
+
+            return this.size == other.size && this.modified == other.modified && this.hash.equals(other.hash)
+                    && (this.fileKey == null ? other.fileKey == null : this.fileKey.equals(other.fileKey));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash.hashCode();
+        }
+    }
+}
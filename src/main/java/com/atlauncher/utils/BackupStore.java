@@ -0,0 +1,505 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.atlauncher.managers.LogManager;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import org.zeroturnaround.zip.NameMapper;
+
+/**
+ * Stores backups of directories, such as instances and servers, without storing
+ * the same file twice.
+ *
+ * Each file is stored once in the objects directory, named after the SHA-1 hash
+ * of its contents, and each backup (snapshot) is just a manifest listing the
+ * files it contains along with their hashes. Files which haven't changed size or
+ * modified time since the last snapshot of the same name aren't even read again,
+ * so backing up a world where only a few region files have changed only costs
+ * those few files.
+ *
+ * Objects no longer used by any snapshot are removed after each backup and when
+ * a snapshot is deleted, so only the files unique to a snapshot take up space.
+ */
+public final class BackupStore {
+    private static final Gson GSON = new Gson();
+    private static final Object LOCK = new Object();
+
+    // backing up is limited by the disk rather than the cpu, so more threads than this just fight over it
+    private static final int MAX_THREADS = 4;
+
+    private final Path objects;
+    private final Path snapshots;
+
+    public BackupStore(Path directory) {
+        this.objects = directory.resolve("objects");
+        this.snapshots = directory.resolve("snapshots");
+    }
+
+    /**
+     * Backs up the given directory as a new snapshot with the given name.
+     *
+     * @param name   the name to group the snapshot under, such as the instance's
+     *               safe name
+     * @param root   the directory to back up
+     * @param mapper maps the path of each file and directory (using / as the
+     *               separator and ending in / for directories) to the path to
+     *               store it as, or null to leave it out of the backup
+     */
+    public Snapshot backup(String name, Path root, NameMapper mapper) throws IOException, InterruptedException {
+        synchronized (LOCK) {
+            Files.createDirectories(this.objects);
+            Files.createDirectories(this.snapshots.resolve(name));
+
+            Map<String, Entry> previous = new HashMap<>();
+            List<Snapshot> existing = this.getSnapshots(name);
+            if (!existing.isEmpty()) {
+                existing.get(0).files.forEach(entry -> previous.put(entry.path, entry));
+            }
+
+            List<Entry> directories = new ArrayList<>();
+            List<Callable<Entry>> files = new ArrayList<>();
+
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root)) {
+                        String path = mapper.map(getRelativePath(root, dir) + "/");
+
+                        if (path != null) {
+                            Entry entry = new Entry();
+                            entry.path = path;
+                            directories.add(entry);
+                        }
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String path = attrs.isRegularFile() ? mapper.map(getRelativePath(root, file)) : null;
+
+                    if (path != null) {
+                        files.add(() -> storeFile(file, path, attrs, previous.get(path)));
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            Snapshot snapshot = new Snapshot();
+            snapshot.name = name;
+            snapshot.created = System.currentTimeMillis();
+            snapshot.files = new ArrayList<>(directories);
+            snapshot.files.addAll(runAll(files));
+            snapshot.id = this.getNewSnapshotId(name, snapshot.created);
+
+            writeAtomically(this.getManifestPath(name, snapshot.id), GSON.toJson(snapshot));
+
+            this.removeUnusedObjects();
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Restores the given snapshot into the given directory, replacing any files in
+     * it which are in the snapshot.
+     *
+     * Anything the mapper would have backed up which isn't in the snapshot, such as
+     * region files or worlds made since, is deleted if it's inside a directory the
+     * snapshot backed up, so what's restored matches the snapshot exactly. Anything
+     * else in the directory is left alone.
+     *
+     * Nothing is deleted or written until every file in the snapshot has been
+     * checked to still be in the store, so a broken snapshot leaves the directory
+     * as it was.
+     *
+     * @param snapshot the snapshot to restore
+     * @param to       the directory to restore it into
+     * @param mapper   the mapper the snapshot was backed up with
+     */
+    public void restore(Snapshot snapshot, Path to, NameMapper mapper) throws IOException, InterruptedException {
+        synchronized (LOCK) {
+            Path root = to.toAbsolutePath().normalize();
+            List<Path> directories = new ArrayList<>();
+            List<Callable<Entry>> files = new ArrayList<>();
+
+            for (Entry entry : snapshot.files) {
+                Path target = root.resolve(entry.path).normalize();
+
+                if (!target.startsWith(root)) {
+                    throw new IOException("Backup entry " + entry.path + " is outside of " + root);
+                }
+
+                if (entry.hash == null) {
+                    directories.add(target);
+                    continue;
+                }
+
+                Path object = this.getObjectPath(entry.hash);
+                if (!Files.isRegularFile(object)) {
+                    throw new IOException("Backup " + snapshot.id + " is missing " + entry.path);
+                }
+
+                files.add(() -> {
+                    FileUtils.createDirectory(target.getParent());
+
+                    // never write over an existing file in place as it may be linked from elsewhere
+                    Files.copy(object, target, StandardCopyOption.REPLACE_EXISTING);
+                    Files.setLastModifiedTime(target, FileTime.fromMillis(entry.modified));
+                    return entry;
+                });
+            }
+
+            if (Files.isDirectory(root)) {
+                removeFilesNotInSnapshot(snapshot, root, mapper);
+            }
+
+            directories.forEach(FileUtils::createDirectory);
+            runAll(files);
+        }
+    }
+
+    /**
+     * Deletes the given snapshot, along with any stored files which no other
+     * snapshot uses.
+     */
+    public void delete(Snapshot snapshot) throws IOException {
+        synchronized (LOCK) {
+            Files.deleteIfExists(this.getManifestPath(snapshot.name, snapshot.id));
+
+            this.removeUnusedObjects();
+        }
+    }
+
+    private static void removeFilesNotInSnapshot(Snapshot snapshot, Path root, NameMapper mapper)
+            throws IOException {
+        Set<String> paths = snapshot.files.stream().map(entry -> entry.path).collect(Collectors.toSet());
+        Set<String> directories = snapshot.files.stream().filter(entry -> entry.hash == null)
+                .map(entry -> entry.path).collect(Collectors.toSet());
+
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String path = mapper.map(getRelativePath(root, file));
+
+                if (path != null && !paths.contains(path) && isInside(path, directories)) {
+                    Files.delete(file);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+
+                if (!dir.equals(root)) {
+                    String path = mapper.map(getRelativePath(root, dir) + "/");
+
+                    if (path != null && !paths.contains(path) && isInside(path, directories)) {
+                        try {
+                            Files.delete(dir);
+                        } catch (DirectoryNotEmptyException e) {
+                            // still has files the snapshot doesn't cover in it
+                        }
+                    }
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Checks if the given path is somewhere inside one of the given directories.
+     */
+    private static boolean isInside(String path, Set<String> directories) {
+        // skip a trailing / so a directory isn't counted as inside itself
+        for (int i = path.lastIndexOf('/', path.length() - 2); i > 0; i = path.lastIndexOf('/', i - 1)) {
+            if (directories.contains(path.substring(0, i + 1))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the snapshots with the given name, newest first.
+     */
+    public List<Snapshot> getSnapshots(String name) {
+        Path directory = this.snapshots.resolve(name);
+
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+
+        List<Snapshot> found = new ArrayList<>();
+
+        try (Stream<Path> stream = Files.list(directory)) {
+            for (Path manifest : stream.filter(path -> path.toString().endsWith(".json"))
+                    .collect(Collectors.toList())) {
+                Snapshot snapshot = readManifest(manifest);
+
+                if (snapshot != null) {
+                    found.add(snapshot);
+                }
+            }
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error reading backups for " + name, e, false);
+        }
+
+        found.sort(Comparator.comparingLong((Snapshot snapshot) -> snapshot.created).reversed());
+
+        return found;
+    }
+
+    private Entry storeFile(Path file, String path, BasicFileAttributes attrs, Entry previous) throws IOException {
+        Entry entry = new Entry();
+        entry.path = path;
+        entry.size = attrs.size();
+        entry.modified = attrs.lastModifiedTime().toMillis();
+
+        if (previous != null && previous.hash != null && previous.size == entry.size
+                && previous.modified == entry.modified && Files.isRegularFile(this.getObjectPath(previous.hash))) {
+            entry.hash = previous.hash;
+            return entry;
+        }
+
+        // copy the file in and hash it at the same time, so it's only read once
+        Path temp = this.objects.resolve(UUID.randomUUID().toString() + ".tmp");
+
+        try {
+            Hashing.HashCode hash;
+
+            try (Hashing.DigestingChannel in = Hashing.digesting(FileChannel.open(file, StandardOpenOption.READ),
+                    "SHA-1"); FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+
+                while ((transferred = out.transferFrom(in, position, Long.MAX_VALUE)) > 0) {
+                    position += transferred;
+                }
+
+                hash = in.hash();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+
+            entry.hash = hash.toString();
+            Path object = this.getObjectPath(entry.hash);
+
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+
+                try {
+                    moveAtomically(temp, object);
+                } catch (FileAlreadyExistsException e) {
+                    // stored by another thread in the meantime
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Removes any objects which aren't used by a snapshot anymore, as well as any
+     * left over from backups that didn't finish.
+     */
+    private void removeUnusedObjects() {
+        Set<String> used = new HashSet<>();
+
+        try (Stream<Path> stream = Files.walk(this.snapshots)) {
+            for (Path manifest : stream.filter(path -> path.toString().endsWith(".json"))
+                    .collect(Collectors.toList())) {
+                Snapshot snapshot = readManifest(manifest);
+
+                // if a snapshot can't be read then there's no way to know what it still needs
+                if (snapshot == null) {
+                    return;
+                }
+
+                snapshot.files.stream().filter(entry -> entry.hash != null).forEach(entry -> used.add(entry.hash));
+            }
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error finding unused backup files", e, false);
+            return;
+        }
+
+        try (Stream<Path> stream = Files.walk(this.objects)) {
+            stream.filter(Files::isRegularFile).filter(path -> !used.contains(path.getFileName().toString()))
+                    .forEach(FileUtils::delete);
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error removing unused backup files", e, false);
+        }
+    }
+
+    private Path getObjectPath(String hash) {
+        return this.objects.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path getManifestPath(String name, String id) {
+        return this.snapshots.resolve(name).resolve(id + ".json");
+    }
+
+    private String getNewSnapshotId(String name, long created) {
+        String id = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date(created));
+
+        String unique = id;
+        for (int i = 2; Files.exists(this.getManifestPath(name, unique)); i++) {
+            unique = id + "_" + i;
+        }
+
+        return unique;
+    }
+
+    private static String getRelativePath(Path root, Path path) {
+        return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private static Snapshot readManifest(Path manifest) {
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            Snapshot snapshot = GSON.fromJson(reader, Snapshot.class);
+
+            if (snapshot != null && snapshot.files != null) {
+                return snapshot;
+            }
+
+            LogManager.error("Backup manifest " + manifest + " is empty");
+        } catch (IOException | JsonParseException e) {
+            LogManager.logStackTrace("Error reading backup manifest " + manifest, e, false);
+        }
+
+        return null;
+    }
+
+    private static void writeAtomically(Path to, String contents) throws IOException {
+        Path temp = to.resolveSibling(to.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(contents);
+        }
+
+        moveAtomically(temp, to);
+    }
+
+    private static void moveAtomically(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to);
+        }
+    }
+
+    private static <T> List<T> runAll(List<Callable<T>> tasks) throws IOException, InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "BackupStore-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    public static final class Snapshot {
+        public String name;
+        public String id;
+        public long created;
+        public List<Entry> files;
+
+        @Override
+        public String toString() {
+            return this.id;
+        }
+    }
+
+    public static final class Entry {
+        public String path;
+
+        // null for directories
+        public String hash;
+        public long size;
+        public long modified;
+    }
+}
@@ -20,9 +20,19 @@ package com.atlauncher.utils;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import com.atlauncher.Gsons;
 import com.atlauncher.data.Constants;
 import com.atlauncher.data.curse.CurseFile;
 import com.atlauncher.data.curse.CurseFingerprint;
@@ -39,6 +49,12 @@ import okhttp3.RequestBody;
  * Various utility methods for interacting with the Curse API.
  */
 public class CurseApi {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    // how many ids to ask for in one batch request, and how many requests to make at once
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+
     public static List<CurseMod> searchCurse(int sectionId, String query, int page, int categoryId, String sort) {
         return searchCurse(null, sectionId, query, page, categoryId, sort);
     }
@@ -108,6 +124,147 @@ public class CurseApi {
                 .cached(new CacheControl.Builder().maxStale(10, TimeUnit.MINUTES).build()).asClass(CurseMod.class);
     }
 
+    /**
+     * Gets the mods with the given ids, using what's stored on disk where possible
+     * and asking Curse for the rest in batches.
+     *
+     * @return the mods found, keyed by their id
+     */
+    public static Map<Integer, CurseMod> getModsByIds(Collection<Integer> modIds) {
+        Map<Integer, CurseMod> mods = new ConcurrentHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+
+        modIds.stream().distinct().forEach(modId -> {
+            CurseMod mod = CurseMetadataStore.getMod(modId);
+
+            if (mod == null) {
+                missing.add(modId);
+            } else {
+                mods.put(modId, mod);
+            }
+        });
+
+        java.lang.reflect.Type type = new TypeToken<List<CurseMod>>() {
+        }.getType();
+
+        runBounded(partition(missing), batch -> {
+            List<CurseMod> found = Download.build()
+                    .post(RequestBody.create(Gsons.MINECRAFT.toJson(batch), JSON))
+                    .setUrl(String.format("%s/addon", Constants.CURSE_API_URL)).asType(type);
+
+            if (found != null) {
+                found.forEach(mod -> {
+                    mods.put(mod.id, mod);
+                    CurseMetadataStore.putMod(mod);
+                });
+            }
+        });
+
+        // anything the batch request didn't return is asked for on its own
+        runBounded(missing.stream().filter(modId -> !mods.containsKey(modId)).collect(Collectors.toList()),
+                modId -> {
+                    CurseMod mod = getModById(modId);
+
+                    if (mod != null) {
+                        mods.put(modId, mod);
+                        CurseMetadataStore.putMod(mod);
+                    }
+                });
+
+        return mods;
+    }
+
+    /**
+     * Gets the given files, using what's stored on disk where possible and asking
+     * Curse for the rest in batches.
+     *
+     * @param files the ids of the files to get, mapped to the id of the mod each one
+     *              belongs to
+     * @return the files found, keyed by their id
+     */
+    public static Map<Integer, CurseFile> getFilesByIds(Map<Integer, Integer> files) {
+        Map<Integer, CurseFile> found = new ConcurrentHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+
+        files.keySet().forEach(fileId -> {
+            CurseFile file = CurseMetadataStore.getFile(fileId);
+
+            if (file == null) {
+                missing.add(fileId);
+            } else {
+                found.put(fileId, file);
+            }
+        });
+
+        java.lang.reflect.Type type = new TypeToken<Map<Integer, List<CurseFile>>>() {
+        }.getType();
+
+        runBounded(partition(missing), batch -> {
+            Map<Integer, List<CurseFile>> response = Download.build()
+                    .post(RequestBody.create(Gsons.MINECRAFT.toJson(batch), JSON))
+                    .setUrl(String.format("%s/addon/files", Constants.CURSE_API_URL)).asType(type);
+
+            if (response != null) {
+                response.values().stream().flatMap(List::stream).filter(file -> files.containsKey(file.id))
+                        .forEach(file -> {
+                            found.put(file.id, file);
+                            CurseMetadataStore.putFile(file);
+                        });
+            }
+        });
+
+        runBounded(missing.stream().filter(fileId -> !found.containsKey(fileId)).collect(Collectors.toList()),
+                fileId -> {
+                    CurseFile file = getFileForMod(files.get(fileId), fileId);
+
+                    if (file != null) {
+                        found.put(fileId, file);
+                        CurseMetadataStore.putFile(file);
+                    }
+                });
+
+        return found;
+    }
+
+    private static List<List<Integer>> partition(List<Integer> ids) {
+        List<List<Integer>> batches = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            batches.add(new ArrayList<>(ids.subList(i, Math.min(ids.size(), i + BATCH_SIZE))));
+        }
+
+        return batches;
+    }
+
+    /**
+     * Runs the given request for each item, with only a few running at once, and
+     * waits for them all to finish.
+     */
+    private static <T> void runBounded(List<T> items, Consumer<T> request) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        if (items.size() == 1) {
+            request.accept(items.get(0));
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(items.size(), MAX_CONCURRENT_REQUESTS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "CurseApi");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        try {
+            CompletableFuture.allOf(items.stream().map(item -> CompletableFuture.runAsync(() -> request.accept(item),
+                    executor)).toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     public static CurseFingerprint checkFingerprint(long murmurHash) {
         return Download.build()
                 .post(RequestBody.create("[" + murmurHash + "]", MediaType.get("application/json; charset=utf-8")))
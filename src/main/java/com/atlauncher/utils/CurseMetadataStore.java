@@ -0,0 +1,118 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import com.atlauncher.FileSystem;
+import com.atlauncher.Gsons;
+import com.atlauncher.data.curse.CurseFile;
+import com.atlauncher.data.curse.CurseMod;
+import com.atlauncher.managers.LogManager;
+import com.google.gson.JsonParseException;
+
+/**
+ * Keeps the Curse mod and file info looked up when installing packs on disk, so
+ * installing or updating the same pack again doesn't need to ask Curse for it all
+ * over again.
+ *
+ * Files never change once uploaded, so they're kept forever. Mods are only trusted
+ * for a day since things like their name and description can change.
+ */
+final class CurseMetadataStore {
+    private static final Path MODS = FileSystem.CURSE_METADATA.resolve("mods");
+    private static final Path FILES = FileSystem.CURSE_METADATA.resolve("files");
+
+    private static final long MOD_MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    private CurseMetadataStore() {
+    }
+
+    static CurseMod getMod(int modId) {
+        Path path = MODS.resolve(modId + ".json");
+
+        try {
+            if (!Files.isRegularFile(path)
+                    || System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis() > MOD_MAX_AGE) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        return read(path, CurseMod.class);
+    }
+
+    static void putMod(CurseMod mod) {
+        write(MODS.resolve(mod.id + ".json"), mod);
+    }
+
+    static CurseFile getFile(int fileId) {
+        Path path = FILES.resolve(fileId + ".json");
+
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        return read(path, CurseFile.class);
+    }
+
+    static void putFile(CurseFile file) {
+        write(FILES.resolve(file.id + ".json"), file);
+    }
+
+    private static <T> T read(Path path, Class<T> type) {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return Gsons.MINECRAFT.fromJson(reader, type);
+        } catch (IOException | JsonParseException e) {
+            LogManager.logStackTrace("Error reading Curse info from " + path, e, false);
+            FileUtils.delete(path);
+        }
+
+        return null;
+    }
+
+    private static void write(Path path, Object object) {
+        // write to a temp file first so nothing ever reads half a file
+        Path tempFile = path.resolveSibling(path.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+
+        try {
+            FileUtils.createDirectory(path.getParent());
+
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                Gsons.MINECRAFT.toJson(object, writer);
+            }
+
+            try {
+                Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error saving Curse info to " + path, e, false);
+        }
+    }
+}
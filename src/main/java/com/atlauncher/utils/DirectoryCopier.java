@@ -0,0 +1,242 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.atlauncher.managers.LogManager;
+
+/**
+ * Copies a directory and everything in it to another directory.
+ *
+ * The source is walked on the calling thread, creating each directory as it's
+ * found, while the files themselves are copied on a small pool of threads using
+ * {@link FileChannel#transferTo} so the copying can be done by the OS.
+ *
+ * Files that already exist in the destination are deleted before being copied
+ * over, since they may be linked in from the download store.
+ */
+public final class DirectoryCopier {
+    // copying is limited by the disk rather than the cpu, so more threads than this just fight over it
+    private static final int MAX_THREADS = 4;
+
+    private final Path from;
+    private final Path to;
+
+    private boolean link = false;
+    private boolean skipIdentical = false;
+
+    public DirectoryCopier(Path from, Path to) {
+        this.from = from.toAbsolutePath().normalize();
+        this.to = to.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Hard links files into the destination instead of copying them where possible.
+     * Only use this when nothing will write to either file in place, such as when the
+     * source is about to be deleted.
+     */
+    public DirectoryCopier link() {
+        this.link = true;
+        return this;
+    }
+
+    /**
+     * Leaves files in the destination alone if they have the same size and modified
+     * time as the file being copied.
+     */
+    public DirectoryCopier skipIdentical() {
+        this.skipIdentical = true;
+        return this;
+    }
+
+    public void copy() throws IOException {
+        if (this.from.equals(this.to)) {
+            return;
+        }
+
+        BasicFileAttributes fromAttributes = Files.readAttributes(this.from, BasicFileAttributes.class);
+
+        if (!fromAttributes.isDirectory()) {
+            this.copyFile(this.from, this.to, fromAttributes);
+            return;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "DirectoryCopier-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<Void>> copies = new ArrayList<>();
+
+        try {
+            Files.walkFileTree(this.from, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                                throws IOException {
+                            // don't copy the destination into itself when it's inside of the source
+                            if (dir.equals(to) && !dir.equals(from)) {
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+
+                            Path target = getTarget(dir);
+
+                            if (Files.exists(target, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(target)) {
+                                Files.delete(target);
+                            }
+
+                            Files.createDirectories(target);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            copies.add(executor.submit(() -> {
+                                copyFile(file, getTarget(file), attrs);
+                                return null;
+                            }));
+
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                            if (exc instanceof FileSystemLoopException) {
+                                LogManager.warn("Not copying " + file + " as it links back to a parent directory");
+                                return FileVisitResult.CONTINUE;
+                            }
+
+                            throw exc;
+                        }
+                    });
+        } finally {
+            IOException error = waitFor(copies);
+            executor.shutdown();
+
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    private Path getTarget(Path source) {
+        return this.to.resolve(this.from.relativize(source).toString());
+    }
+
+    /**
+     * Waits for all the given copies to finish, even if some have failed, so
+     * nothing is still being written once copying has returned.
+     *
+     * @return the first error from the copies, if any
+     */
+    private static IOException waitFor(List<Future<Void>> copies) {
+        IOException error = null;
+
+        for (Future<Void> copy : copies) {
+            try {
+                copy.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                            : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                if (error == null) {
+                    error = new IOException("Interrupted while copying files", e);
+                }
+            }
+        }
+
+        return error;
+    }
+
+    private void copyFile(Path source, Path target, BasicFileAttributes attributes) throws IOException {
+        if (this.skipIdentical && isIdentical(target, attributes)) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(target);
+        } catch (DirectoryNotEmptyException e) {
+            FileUtils.deleteDirectory(target);
+        }
+
+        if (this.link) {
+            try {
+                Files.createLink(target, source);
+                return;
+            } catch (IOException | UnsupportedOperationException | SecurityException e) {
+                LogManager.debug("Couldn't link file from " + source + " to " + target + ", copying instead: "
+                        + e.getMessage(), 3);
+            }
+        }
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+
+                if (transferred <= 0) {
+                    throw new IOException("File " + source + " shrunk while being copied");
+                }
+
+                position += transferred;
+            }
+        }
+
+        Files.setLastModifiedTime(target, attributes.lastModifiedTime());
+    }
+
+    private static boolean isIdentical(Path target, BasicFileAttributes attributes) {
+        try {
+            BasicFileAttributes targetAttributes = Files.readAttributes(target, BasicFileAttributes.class);
+
+            return targetAttributes.isRegularFile() && targetAttributes.size() == attributes.size()
+                    && targetAttributes.lastModifiedTime().equals(attributes.lastModifiedTime());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -18,9 +18,14 @@
 package com.atlauncher.utils;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 import com.atlauncher.managers.LogManager;
 import com.atlauncher.utils.walker.DeleteDirVisitor;
@@ -67,6 +72,26 @@ public class FileUtils {
         return true;
     }
 
+    /**
+     * Checks if another process has the given file locked, such as a world's
+     * session.lock while a Minecraft server has that world loaded.
+     */
+    public static boolean isLocked(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                FileLock lock = channel.tryLock()) {
+            return lock == null;
+        } catch (OverlappingFileLockException e) {
+            return true;
+        } catch (IOException e) {
+            LogManager.logStackTrace("Couldn't check if " + file + " is locked", e, false);
+            return false;
+        }
+    }
+
     public static boolean createDirectory(Path directory) {
         if (Files.exists(directory)) {
             if (Files.isDirectory(directory)) {
@@ -87,6 +112,13 @@ public class FileUtils {
         try {
             Files.createDirectory(directory);
             return true;
+        } catch (FileAlreadyExistsException e) {
+            // something else may have created it at the same time, which is fine
+            if (Files.isDirectory(directory)) {
+                return true;
+            }
+
+            LogManager.logStackTrace("Error creating directory " + directory, e, false);
         } catch (IOException e) {
             LogManager.logStackTrace("Error creating directory " + directory, e, false);
         }
@@ -140,6 +172,67 @@ public class FileUtils {
         return true;
     }
 
+    public static boolean linkFile(Path from, Path to) {
+        return linkFile(from, to, false);
+    }
+
+    /**
+     * Puts the given file at the destination as a hard link when possible, falling
+     * back to copying it when the file system doesn't support them or the two paths
+     * are on different drives.
+     *
+     * Linked files share their contents, so anything given a file this way must
+     * replace it rather than write over it in place.
+     */
+    public static boolean linkFile(Path from, Path to, boolean withFilename) {
+        if (!Files.isRegularFile(from)) {
+            LogManager.error("File " + from + " cannot be linked to " + to + " as it isn't a file!");
+            return false;
+        }
+
+        if (!withFilename) {
+            to = to.resolve(from.getFileName());
+        }
+
+        if (!Files.exists(to.getParent())) {
+            FileUtils.createDirectory(to.getParent());
+        }
+
+        try {
+            if (Files.exists(to)) {
+                if (Files.isSameFile(from, to)) {
+                    return true;
+                }
+
+                Files.delete(to);
+            }
+
+            Files.createLink(to, from);
+            LogManager.debug("Linked file from " + from + " to " + to, 3);
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            LogManager.debug("Couldn't link file from " + from + " to " + to + ", copying instead: " + e.getMessage(),
+                    3);
+        }
+
+        return copyFile(from, to, true);
+    }
+
+    /**
+     * Puts everything in the given directory into the destination directory as hard
+     * links when possible, in the same way as {@link #linkFile(Path, Path, boolean)}.
+     */
+    public static boolean linkDirectory(Path from, Path to) {
+        try {
+            new DirectoryCopier(from, to).link().copy();
+        } catch (IOException e) {
+            LogManager.logStackTrace("Failed to link directory " + from + " to " + to, e);
+            return false;
+        }
+
+        return true;
+    }
+
     public static boolean moveFile(Path from, Path to) {
         return moveFile(from, to, false);
     }
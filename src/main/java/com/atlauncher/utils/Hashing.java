@@ -17,53 +17,131 @@
  */
 package com.atlauncher.utils;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.atlauncher.collection.Caching;
 import com.atlauncher.managers.LogManager;
-import com.sangupta.murmur.Murmur2;
-
-import org.apache.commons.lang3.ArrayUtils;
 
 public final class Hashing {
     private static final char[] hex = "0123456789abcdef".toCharArray();
-    private static final SoftReference<Caching.Cache<Object, HashCode>> hashcodes = new SoftReference<>(
-            Caching.newLRU());
+    private static final Caching.Cache<Object, HashCode> hashcodes = Caching.newTinyLFU();
+
+    // files at least this big are memory mapped rather than read through the buffer
+    private static final long MAP_MIN_SIZE = 32L * 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocate(128 * 1024));
 
     public static HashCode md5(Path file) {
         if (!Files.exists(file)) {
             return HashCode.EMPTY;
         }
 
-        try (Hasher hasher = new MD5Hasher(Files.newInputStream(file))) {
-            return hasher.hash();
+        try {
+            return digest(file, "MD5");
         } catch (Exception e) {
             LogManager.logStackTrace("Error hashing (MD5) file " + file.getFileName(), e);
             return HashCode.EMPTY;
         }
     }
 
+    /**
+     * Gets the Curse fingerprint of a file, which is a murmur2 hash (seeded with 1) of
+     * the file with all tabs, newlines, carriage returns and spaces taken out.
+     *
+     * The hash is seeded with the length of the file without whitespace, so the file
+     * is streamed through a reused buffer twice, first to count what's left after
+     * taking out the whitespace and then to hash it. This keeps memory use the same
+     * no matter how big the file is.
+     */
+    @SuppressWarnings("fallthrough")
     public static long murmur(Path to) throws IOException {
-        byte[] bytes = ArrayUtils
-                .removeAllOccurrences(ArrayUtils.removeAllOccurrences(
-                        ArrayUtils.removeAllOccurrences(
-                                ArrayUtils.removeAllOccurrences(Files.readAllBytes(to), (byte) 9), (byte) 10),
-                        (byte) 13), (byte) 32);
+        ByteBuffer buffer = BUFFER.get();
+        byte[] bytes = buffer.array();
+
+        try (FileChannel channel = FileChannel.open(to, StandardOpenOption.READ)) {
+            int length = 0;
+            int read;
+
+            buffer.clear();
+            while ((read = channel.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (!isMurmurWhitespace(bytes[i])) {
+                        length++;
+                    }
+                }
+                buffer.clear();
+            }
+
+            final int m = 0x5bd1e995;
+            int hash = 1 ^ length;
+            int word = 0;
+            int wordBytes = 0;
+
+            channel.position(0L);
+            while ((read = channel.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    byte b = bytes[i];
+
+                    if (isMurmurWhitespace(b)) {
+                        continue;
+                    }
 
-        return Murmur2.hash(bytes, bytes.length, 1L);
+                    word |= (b & 0xFF) << (wordBytes << 3);
+
+                    if (++wordBytes == 4) {
+                        word *= m;
+                        word ^= word >>> 24;
+                        word *= m;
+
+                        hash *= m;
+                        hash ^= word;
+
+                        word = 0;
+                        wordBytes = 0;
+                    }
+                }
+                buffer.clear();
+            }
+
+            // the reference implementation doesn't mask the last few bytes, so bytes over
+            // 127 are sign extended, which has to be matched to get the same fingerprints
+            switch (wordBytes) {
+                case 3:
+                    hash ^= ((byte) (word >>> 16)) << 16;
+                    // fall through
+                case 2:
+                    hash ^= ((byte) (word >>> 8)) << 8;
+                    // fall through
+                case 1:
+                    hash ^= (byte) word;
+                    hash *= m;
+            }
+
+            hash ^= hash >>> 13;
+            hash *= m;
+            hash ^= hash >>> 15;
+
+            return hash & 0xFFFFFFFFL;
+        }
+    }
+
+    private static boolean isMurmurWhitespace(byte b) {
+        return b == 9 || b == 10 || b == 13 || b == 32;
     }
 
     private static HashCode md5Internal(String str) {
@@ -71,8 +149,8 @@ public final class Hashing {
             return HashCode.EMPTY;
         }
 
-        try (Hasher hasher = new MD5Hasher(new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)))) {
-            return hasher.hash();
+        try {
+            return digest(str.getBytes(StandardCharsets.UTF_8), "MD5");
         } catch (Exception e) {
             LogManager.logStackTrace("Error hashing (MD5) string " + str, e);
             return HashCode.EMPTY;
@@ -84,8 +162,8 @@ public final class Hashing {
             return HashCode.EMPTY;
         }
 
-        try (Hasher hasher = new MD5Hasher(new ByteArrayInputStream(bytes))) {
-            return hasher.hash();
+        try {
+            return digest(bytes, "MD5");
         } catch (Exception e) {
             LogManager.logStackTrace("Error hashing (MD5) byte array", e);
             return HashCode.EMPTY;
@@ -103,9 +181,7 @@ public final class Hashing {
             oos.writeObject(obj);
             oos.flush();
 
-            try (Hasher hasher = new MD5Hasher(new ByteArrayInputStream(bos.toByteArray()))) {
-                return hasher.hash();
-            }
+            return digest(bos.toByteArray(), "MD5");
         } catch (Exception e) {
             LogManager.logStackTrace("Error hashing (MD5) object " + obj.getClass(), e);
             return HashCode.EMPTY;
@@ -114,12 +190,12 @@ public final class Hashing {
 
     public static HashCode md5(String str) {
         try {
-            HashCode code = hashcodes.get().get(str);
+            HashCode code = hashcodes.get(str);
             if (code != null) {
                 return code;
             }
             code = md5Internal(str);
-            hashcodes.get().put(str, code);
+            hashcodes.put(str, code);
             return code;
         } catch (Exception e) {
             return md5Internal(str);
@@ -128,12 +204,12 @@ public final class Hashing {
 
     public static HashCode md5(Object obj) {
         try {
-            HashCode code = hashcodes.get().get(obj);
+            HashCode code = hashcodes.get(obj);
             if (code != null) {
                 return code;
             }
             code = md5Internal(obj);
-            hashcodes.get().put(obj, code);
+            hashcodes.put(obj, code);
             return code;
         } catch (Exception e) {
             return md5Internal(obj);
@@ -142,12 +218,12 @@ public final class Hashing {
 
     public static HashCode md5(byte[] bytes) {
         try {
-            HashCode code = hashcodes.get().get(bytes);
+            HashCode code = hashcodes.get(bytes);
             if (code != null) {
                 return code;
             }
             code = md5Internal(bytes);
-            hashcodes.get().put(bytes, code);
+            hashcodes.put(bytes, code);
             return code;
         } catch (Exception e) {
             return md5Internal(bytes);
@@ -159,8 +235,8 @@ public final class Hashing {
             return HashCode.EMPTY;
         }
 
-        try (Hasher hasher = new SHA1Hasher(Files.newInputStream(file))) {
-            return hasher.hash();
+        try {
+            return digest(file, "SHA-1");
         } catch (Exception e) {
             LogManager.logStackTrace("Error hashing (SHA-1) file " + file.getFileName(), e);
             return HashCode.EMPTY;
@@ -172,8 +248,8 @@ public final class Hashing {
             return HashCode.EMPTY;
         }
 
-        try (Hasher hasher = new SHA1Hasher(new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)))) {
-            return hasher.hash();
+        try {
+            return digest(str.getBytes(StandardCharsets.UTF_8), "SHA-1");
         } catch (Exception e) {
             LogManager.logStackTrace("Error hashing (SHA-1) string " + str, e);
             return HashCode.EMPTY;
@@ -185,94 +261,149 @@ public final class Hashing {
             return HashCode.EMPTY;
         }
 
-        try (Hasher hasher = new SHA1Hasher(new ByteArrayInputStream(bytes))) {
-            return hasher.hash();
+        try {
+            return digest(bytes, "SHA-1");
         } catch (Exception e) {
             LogManager.logStackTrace("Error hashing (SHA-1) byte array", e);
             return HashCode.EMPTY;
         }
     }
 
-    private interface Hasher extends Closeable {
-        HashCode hash();
+    /**
+     * Gets how the caches of hashes have been used, for diagnostics.
+     */
+    public static String getCacheStats() {
+        return "hashes of strings/objects (" + hashcodes.stats() + "), hashes from strings ("
+                + HashCode.hashescache.stats() + "), interned hashes (" + HashCode.interned.stats() + ")";
     }
 
-    private static final class SHA1Hasher implements Hasher {
-        private final InputStream is;
-        private final MessageDigest digest;
+    /**
+     * Gets the SHA-1 hashes of all the given files at once, hashing them in parallel.
+     * Files that can't be hashed get an empty hash.
+     */
+    public static Map<Path, HashCode> sha1All(Collection<Path> files) {
+        return files.parallelStream().distinct().collect(Collectors.toConcurrentMap(file -> file, Hashing::sha1));
+    }
 
-        private SHA1Hasher(InputStream is) throws NoSuchAlgorithmException {
-            this.is = is;
-            this.digest = MessageDigest.getInstance("SHA-1");
-        }
+    private static HashCode digest(byte[] bytes, String algorithm) throws NoSuchAlgorithmException {
+        return new HashCode(MessageDigest.getInstance(algorithm).digest(bytes));
+    }
 
-        @Override
-        public HashCode hash() {
-            try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-                byte[] buffer = new byte[8192];
-                int len;
-                while ((len = this.is.read(buffer, 0, 8192)) != -1) {
-                    bos.write(buffer, 0, len);
+    /**
+     * Hashes the given file with the given algorithm, streaming it through a reused
+     * buffer so memory use doesn't grow with the file size.
+     *
+     * Large files are memory mapped instead, except on Windows where a mapped file
+     * can't be moved or deleted until the mapping is garbage collected.
+     */
+    private static HashCode digest(Path file, String algorithm) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance(algorithm);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size >= MAP_MIN_SIZE && !OS.isWindows()) {
+                for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(Integer.MAX_VALUE, size - position)));
+                }
+            } else {
+                ByteBuffer buffer = BUFFER.get();
+                int read;
+
+                buffer.clear();
+                while ((read = channel.read(buffer)) != -1) {
+                    digest.update(buffer.array(), 0, read);
+                    buffer.clear();
                 }
-
-                return new HashCode(this.digest.digest(bos.toByteArray()));
-            } catch (Exception e) {
-                LogManager.logStackTrace("Error hashing (SHA-1)", e);
-                return null;
             }
         }
 
-        @Override
-        public void close() throws IOException {
-            this.is.close();
-        }
+        return new HashCode(digest.digest());
+    }
+
+    /**
+     * Wraps the given channel so everything read through it is also hashed with the
+     * given algorithm. This allows a file to be verified as it's being written rather
+     * than reading it back from disk afterwards.
+     *
+     * @param channel   the channel to read from
+     * @param algorithm the digest algorithm to use, such as "MD5" or "SHA-1"
+     */
+    public static DigestingChannel digesting(ReadableByteChannel channel, String algorithm)
+            throws NoSuchAlgorithmException {
+        return new DigestingChannel(channel, MessageDigest.getInstance(algorithm));
     }
 
-    private static final class MD5Hasher implements Hasher {
-        private final InputStream is;
+    public static final class DigestingChannel implements ReadableByteChannel {
+        private final ReadableByteChannel channel;
         private final MessageDigest digest;
 
-        private MD5Hasher(InputStream is) throws NoSuchAlgorithmException {
-            this.is = is;
-            this.digest = MessageDigest.getInstance("MD5");
+        private DigestingChannel(ReadableByteChannel channel, MessageDigest digest) {
+            this.channel = channel;
+            this.digest = digest;
         }
 
         @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            int read = this.channel.read(dst);
+
+            if (read > 0) {
+                ByteBuffer readBytes = dst.duplicate();
+                readBytes.flip();
+                readBytes.position(start);
+                this.digest.update(readBytes);
+            }
+
+            return read;
+        }
+
+        /**
+         * Gets the hash of everything read so far. This should only be called once
+         * the channel has been fully read.
+         */
         public HashCode hash() {
-            try {
-                byte[] buffer = new byte[1024];
-                for (int read = this.is.read(buffer, 0, 1024); read > -1; read = this.is.read(buffer, 0, 1024)) {
-                    this.digest.update(buffer, 0, read);
-                }
+            return new HashCode(this.digest.digest());
+        }
 
-                return new HashCode(this.digest.digest());
-            } catch (Exception e) {
-                LogManager.logStackTrace("Error hashing (MD5)", e);
-                return HashCode.EMPTY;
-            }
+        @Override
+        public boolean isOpen() {
+            return this.channel.isOpen();
         }
 
         @Override
         public void close() throws IOException {
-            this.is.close();
+            this.channel.close();
         }
     }
 
     @SuppressWarnings("serial")
     public static final class HashCode implements Serializable, Cloneable {
-        private static final SoftReference<Caching.Cache<String, HashCode>> hashescache = new SoftReference<>(
-                Caching.newLRU());
+        private static final Caching.Cache<String, HashCode> hashescache = Caching.newTinyLFU();
+        private static final Caching.Cache<HashCode, HashCode> interned = Caching.newTinyLFU();
 
         public static final HashCode EMPTY = new HashCode(new byte[0]);
 
         public static HashCode fromString(String str) {
             try {
-                HashCode code = hashescache.get().get(str);
+                HashCode code = hashescache.get(str);
                 if (code != null) {
                     return code;
                 }
                 code = fromStringInternal(str);
-                hashescache.get().put(str, code);
+
+                if (code != EMPTY) {
+                    HashCode existing = interned.get(code);
+
+                    if (existing == null) {
+                        interned.put(code, code);
+                    } else {
+                        code = existing;
+                    }
+                }
+
+                hashescache.put(str, code);
                 return code;
             } catch (Exception e) {
                 return fromStringInternal(str);
@@ -336,13 +467,13 @@ public final class Hashing {
         }
 
         public HashCode intern() {
-            for (Map.Entry<String, HashCode> code : hashescache.get()) {
-                if (code.getValue().equals(this)) {
-                    return code.getValue();
-                }
+            if (this.bits.length == 0) {
+                return EMPTY;
             }
 
-            return this;
+            HashCode code = interned.get(this);
+
+            return code == null ? this : code;
         }
 
         public int asInt() {
@@ -399,8 +530,8 @@ public final class Hashing {
                 return this.asInt();
             }
 
-            int val = (this.bits[0] & 0xFF);
-            for (int i = 1; i < this.bits.length; i++) {
+            int val = 0;
+            for (int i = 0; i < this.bits.length; i++) {
                 val |= ((this.bits[i] & 0xFF) << (i * 8));
             }
 
@@ -0,0 +1,130 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.utils;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.atlauncher.FileSystem;
+import com.atlauncher.managers.LogManager;
+import com.atlauncher.utils.walker.DeleteDirVisitor;
+
+/**
+ * Deletes files and directories in the background.
+ *
+ * Anything put in the trash is renamed into the trash directory straight away,
+ * which is quick no matter how big it is, and then deleted on a low priority
+ * background thread. Anything left in the trash when the launcher closes is
+ * deleted the next time it starts.
+ */
+public final class Trash {
+    private static final AtomicLong COUNTER = new AtomicLong();
+    private static final AtomicBoolean REAP_PENDING = new AtomicBoolean(false);
+
+    private static final ExecutorService REAPER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Trash-Reaper");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private Trash() {
+    }
+
+    /**
+     * Moves the given file or directory out of the way and deletes it in the
+     * background. If it can't be moved into the trash, such as when it's on a
+     * different drive, it's deleted straight away instead.
+     *
+     * @param path the file or directory to delete
+     * @return if the path no longer exists
+     */
+    public static boolean put(Path path) {
+        if (!Files.exists(path)) {
+            return true;
+        }
+
+        if (Files.isSymbolicLink(path)) {
+            LogManager.error("Not deleting " + path + " as it's a symlink!");
+            return false;
+        }
+
+        Path target = FileSystem.TRASH.resolve(System.currentTimeMillis() + "-" + COUNTER.getAndIncrement() + "-"
+                + path.getFileName());
+
+        try {
+            Files.createDirectories(FileSystem.TRASH);
+
+            try {
+                Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // not on the same drive, so moving it would be as slow as deleting it
+                return FileUtils.delete(path);
+            }
+        } catch (IOException e) {
+            LogManager.debug("Couldn't move " + path + " to the trash, deleting it instead: " + e.getMessage(), 3);
+            return FileUtils.delete(path);
+        }
+
+        empty();
+        return true;
+    }
+
+    /**
+     * Deletes everything in the trash on the background thread.
+     */
+    public static void empty() {
+        if (REAP_PENDING.compareAndSet(false, true)) {
+            REAPER.execute(() -> {
+                REAP_PENDING.set(false);
+                reap();
+            });
+        }
+    }
+
+    private static void reap() {
+        if (!Files.isDirectory(FileSystem.TRASH)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(FileSystem.TRASH)) {
+            for (Path path : stream) {
+                try {
+                    if (Files.isDirectory(path) && !Files.isSymbolicLink(path)) {
+                        Files.walkFileTree(path, new DeleteDirVisitor());
+                    } else {
+                        Files.delete(path);
+                    }
+                } catch (IOException e) {
+                    // probably still in use, so leave it for next time
+                    LogManager.debug("Couldn't delete " + path + " from the trash: " + e.getMessage(), 3);
+                }
+            }
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error emptying the trash", e, false);
+        }
+    }
+}
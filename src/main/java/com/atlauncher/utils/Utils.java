@@ -21,10 +21,8 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -42,7 +40,6 @@ import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.Proxy;
-import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
@@ -55,18 +52,13 @@ import java.nio.file.StandardOpenOption;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.EnumSet;
 import java.util.Enumeration;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -366,33 +358,14 @@ public class Utils {
         if (copyFolder) {
             targetLocation = new File(targetLocation, sourceLocation.getName());
         }
-        try {
-            if (sourceLocation.isDirectory()) {
-                if (!targetLocation.exists()) {
-                    targetLocation.mkdirs();
-                }
 
-                String[] children = sourceLocation.list();
-                for (String child : children) {
-                    copyDirectory(new File(sourceLocation, child), new File(targetLocation, child));
-                }
-            } else {
-
-                InputStream in = new FileInputStream(sourceLocation);
-                OutputStream out = new FileOutputStream(targetLocation);
-
-                byte[] buf = new byte[1024];
-                int len;
-                while ((len = in.read(buf)) > 0) {
-                    out.write(buf, 0, len);
-                }
-                in.close();
-                out.close();
-            }
+        try {
+            new DirectoryCopier(sourceLocation.toPath(), targetLocation.toPath()).copy();
         } catch (IOException e) {
             LogManager.logStackTrace(e);
             return false;
         }
+
         return true;
     }
 
@@ -415,42 +388,19 @@ public class Utils {
      */
     public static void unzip(File in, File out, ExtractRule extractRule) {
         try {
-            ZipFile zipFile;
-            if (!out.exists()) {
-                out.mkdirs();
-            }
-            zipFile = new ZipFile(in);
-            Enumeration<?> e = zipFile.entries();
-            while (e.hasMoreElements()) {
-                ZipEntry entry = (ZipEntry) e.nextElement();
-                String entryName = entry.getName();
-                if (entry.getName().endsWith("aux.class")) {
-                    entryName = "aux_class";
-                }
+            ZipExtractor.extract(in.toPath(), out.toPath(), name -> {
+                String entryName = name.endsWith("aux.class") ? "aux_class" : name;
+
                 if (extractRule != null && extractRule.shouldExclude(entryName)) {
-                    continue;
-                }
-                if (entry.isDirectory()) {
-                    File folder = new File(out, entryName);
-                    folder.mkdirs();
+                    return null;
                 }
-                File destinationFilePath = new File(out, entryName);
-                destinationFilePath.getParentFile().mkdirs();
-                if (!entry.isDirectory() && !entry.getName().equals(".minecraft")) {
-                    BufferedInputStream bis = new BufferedInputStream(zipFile.getInputStream(entry));
-                    int b;
-                    byte[] buffer = new byte[1024];
-                    FileOutputStream fos = new FileOutputStream(destinationFilePath);
-                    BufferedOutputStream bos = new BufferedOutputStream(fos, 1024);
-                    while ((b = bis.read(buffer, 0, 1024)) != -1) {
-                        bos.write(buffer, 0, b);
-                    }
-                    bos.flush();
-                    bos.close();
-                    bis.close();
+
+                if (entryName.equals(".minecraft")) {
+                    return null;
                 }
-            }
-            zipFile.close();
+
+                return entryName;
+            });
         } catch (IOException e) {
             LogManager.logStackTrace(e);
         }
@@ -553,40 +503,8 @@ public class Utils {
      * @param out the out
      */
     public static void zip(File in, File out) {
-        try {
-            URI base = in.toURI();
-            Deque<File> queue = new LinkedList<>();
-            queue.push(in);
-            OutputStream stream = new FileOutputStream(out);
-            Closeable res = stream;
-            ZipOutputStream zout = null;
-            try {
-                zout = new ZipOutputStream(stream);
-                res = zout;
-                while (!queue.isEmpty()) {
-                    in = queue.pop();
-                    for (File kid : in.listFiles()) {
-                        String name = base.relativize(kid.toURI()).getPath();
-                        if (name.endsWith("aux_class")) {
-                            name = "aux.class";
-                        }
-                        if (kid.isDirectory()) {
-                            queue.push(kid);
-                            name = name.endsWith("/") ? name : name + "/";
-                            zout.putNextEntry(new ZipEntry(name));
-                        } else {
-                            zout.putNextEntry(new ZipEntry(name));
-                            copy(kid, zout);
-                            zout.closeEntry();
-                        }
-                    }
-                }
-            } finally {
-                res.close();
-                if (zout != null) {
-                    zout.close();
-                }
-            }
+        try (ZipCompressor zip = new ZipCompressor(out.toPath())) {
+            zip.addDirectory(in.toPath(), name -> name.endsWith("aux_class") ? "aux.class" : name);
         } catch (IOException e) {
             LogManager.logStackTrace(e);
         }
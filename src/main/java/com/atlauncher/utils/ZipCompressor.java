@@ -0,0 +1,351 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import com.atlauncher.FileSystem;
+
+import org.zeroturnaround.zip.NameMapper;
+
+/**
+ * Writes a zip file, compressing the files going into it on multiple threads.
+ *
+ * Files are compressed in the background as they're added and are written to the
+ * zip file in the order they were added. Files in formats which are already
+ * compressed, such as jars and pngs, are stored as is rather than compressed
+ * again.
+ *
+ * How far ahead files are compressed is limited both by count and by how much
+ * of their data is held in memory, so a directory full of big files can't use up
+ * all of the launcher's memory.
+ */
+public final class ZipCompressor implements Closeable {
+    private static final Set<String> STORED_EXTENSIONS = new HashSet<>(
+            Arrays.asList("jar", "zip", "png", "jpg", "jpeg", "gif", "ogg", "mp3", "gz", "xz", "lzma", "7z"));
+
+    // files bigger than this are compressed into a temp file rather than into memory
+    private static final long MAX_IN_MEMORY_SIZE = 8L * 1024 * 1024;
+
+    // how much file data can be held in memory waiting to be written, counting both the file and its compressed copy
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    private final ZipMerger writer;
+    private final ExecutorService executor;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final int maxPending;
+    private long pendingBytes = 0;
+
+    public ZipCompressor(Path output) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ZipCompressor-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPending = threads * 4;
+        this.writer = new ZipMerger(output);
+    }
+
+    public void add(String name, byte[] contents) throws IOException {
+        long modified = System.currentTimeMillis();
+
+        this.enqueue(() -> compress(name, contents, modified), contents.length * 2L);
+    }
+
+    public void addFile(String name, Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+        this.enqueue(() -> compress(name, file, attributes), getMemoryNeeded(name, attributes));
+    }
+
+    /**
+     * Adds everything in the given directory.
+     *
+     * @param mapper maps the path of each file and directory (using / as the
+     *               separator and ending in / for directories) to the name to give
+     *               it in the zip file, or null to leave it out
+     */
+    public void addDirectory(Path directory, NameMapper mapper) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(directory)) {
+                    String name = mapper.map(getRelativePath(directory, dir) + "/");
+
+                    if (name != null) {
+                        long modified = attrs.lastModifiedTime().toMillis();
+                        enqueue(() -> new Compressed(name, ZipEntry.STORED, 0, 0, modified, new byte[0]), 0);
+                    }
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = attrs.isRegularFile() ? mapper.map(getRelativePath(directory, file)) : null;
+
+                if (name != null) {
+                    enqueue(() -> compress(name, file, attrs), getMemoryNeeded(name, attrs));
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Waits for everything to be compressed and written, then closes the zip file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            while (!this.pending.isEmpty()) {
+                this.writeNext();
+            }
+        } finally {
+            this.executor.shutdownNow();
+
+            // don't leave temp files from anything that didn't get written behind
+            for (Pending pending : this.pending) {
+                if (pending.future.cancel(true)) {
+                    continue;
+                }
+
+                try {
+                    pending.future.get().deleteTempFile();
+                } catch (Exception ignored) {
+                }
+            }
+
+            this.writer.close();
+        }
+    }
+
+    /**
+     * @param bytes how much memory the task will need until it's written
+     */
+    private void enqueue(Callable<Compressed> task, long bytes) throws IOException {
+        while (!this.pending.isEmpty() && this.pendingBytes + bytes > MAX_PENDING_BYTES) {
+            this.writeNext();
+        }
+
+        this.pending.add(new Pending(this.executor.submit(task), bytes));
+        this.pendingBytes += bytes;
+
+        while (this.pending.size() > this.maxPending
+                || (!this.pending.isEmpty() && this.pending.peek().future.isDone())) {
+            this.writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        Compressed compressed;
+
+        try {
+            compressed = this.pending.peek().future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing files");
+        } catch (ExecutionException e) {
+            this.pendingBytes -= this.pending.poll().bytes;
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+
+        this.pendingBytes -= this.pending.poll().bytes;
+
+        try {
+            if (compressed.file != null) {
+                this.writer.addCompressed(compressed.name, compressed.method, compressed.crc, compressed.size,
+                        compressed.modified, compressed.file);
+            } else {
+                this.writer.addCompressed(compressed.name, compressed.method, compressed.crc, compressed.size,
+                        compressed.modified, compressed.bytes);
+            }
+        } finally {
+            compressed.deleteTempFile();
+        }
+    }
+
+    private static Compressed compress(String name, byte[] contents, long modified) {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+
+        byte[] deflated = ZipMerger.deflate(contents);
+
+        // some files don't get any smaller, so there's no point having to inflate them later
+        if (deflated.length >= contents.length) {
+            return new Compressed(name, ZipEntry.STORED, crc.getValue(), contents.length, modified, contents);
+        }
+
+        return new Compressed(name, ZipEntry.DEFLATED, crc.getValue(), contents.length, modified, deflated);
+    }
+
+    private static Compressed compress(String name, Path file, BasicFileAttributes attributes) throws IOException {
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        if (isAlreadyCompressed(name)) {
+            CRC32 crc = new CRC32();
+            long size = 0;
+
+            try (InputStream in = Files.newInputStream(file)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+            }
+
+            return new Compressed(name, ZipEntry.STORED, crc.getValue(), size, modified, file, false);
+        }
+
+        if (attributes.size() <= MAX_IN_MEMORY_SIZE) {
+            return compress(name, Files.readAllBytes(file), modified);
+        }
+
+        Path temp = Files.createTempFile(Files.createDirectories(FileSystem.TEMP), "zip", ".tmp");
+
+        try (CheckedInputStream in = new CheckedInputStream(Files.newInputStream(file), new CRC32());
+                OutputStream out = Files.newOutputStream(temp)) {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+            try (DeflaterOutputStream deflating = new DeflaterOutputStream(out, deflater, 64 * 1024)) {
+                byte[] buffer = new byte[64 * 1024];
+                long size = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    deflating.write(buffer, 0, read);
+                    size += read;
+                }
+
+                deflating.finish();
+
+                return new Compressed(name, ZipEntry.DEFLATED, in.getChecksum().getValue(), size, modified, temp,
+                        true);
+            } finally {
+                deflater.end();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets how much memory compressing the given file will need until it's
+     * written, which is nothing for files that are stored or compressed into a temp
+     * file.
+     */
+    private static long getMemoryNeeded(String name, BasicFileAttributes attributes) {
+        if (isAlreadyCompressed(name) || attributes.size() > MAX_IN_MEMORY_SIZE) {
+            return 0;
+        }
+
+        return attributes.size() * 2;
+    }
+
+    private static boolean isAlreadyCompressed(String name) {
+        int dot = name.lastIndexOf('.');
+
+        return dot != -1 && STORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private static String getRelativePath(Path root, Path path) {
+        return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private static final class Pending {
+        private final Future<Compressed> future;
+        private final long bytes;
+
+        private Pending(Future<Compressed> future, long bytes) {
+            this.future = future;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Compressed {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final long modified;
+        private final byte[] bytes;
+        private final Path file;
+        private final boolean temporary;
+
+        private Compressed(String name, int method, long crc, long size, long modified, byte[] bytes) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.modified = modified;
+            this.bytes = bytes;
+            this.file = null;
+            this.temporary = false;
+        }
+
+        private Compressed(String name, int method, long crc, long size, long modified, Path file,
+                boolean temporary) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.modified = modified;
+            this.bytes = null;
+            this.file = file;
+            this.temporary = temporary;
+        }
+
+        private void deleteTempFile() throws IOException {
+            if (this.temporary) {
+                Files.deleteIfExists(this.file);
+            }
+        }
+    }
+}
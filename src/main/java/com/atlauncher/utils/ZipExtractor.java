@@ -0,0 +1,183 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.zeroturnaround.zip.NameMapper;
+
+/**
+ * Extracts zip files.
+ *
+ * All the directories needed are worked out and created up front, and then the
+ * files are extracted across multiple threads, each reading its own entries from
+ * the zip file and writing them out through a large reused buffer.
+ *
+ * Any file that already exists where an entry is extracted to is deleted first
+ * rather than written over, since it may be linked in from the download store.
+ */
+public final class ZipExtractor {
+    // zip files with fewer files than this aren't worth spreading across threads
+    private static final int MIN_PARALLEL_FILES = 16;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[128 * 1024]);
+
+    private ZipExtractor() {
+    }
+
+    public static void extract(Path zip, Path to) throws IOException {
+        extract(zip, to, name -> name);
+    }
+
+    /**
+     * Extracts the given zip file into the given directory.
+     *
+     * @param zip    the zip file to extract
+     * @param to     the directory to extract into
+     * @param mapper maps each entry name to the path to extract it to, relative to
+     *               the directory, or null to skip the entry
+     */
+    public static void extract(Path zip, Path to, NameMapper mapper) throws IOException {
+        Path root = to.toAbsolutePath().normalize();
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            Map<ZipEntry, Path> files = new LinkedHashMap<>();
+            TreeSet<Path> directories = new TreeSet<>();
+            directories.add(root);
+
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = mapper.map(entry.getName());
+
+                if (name == null) {
+                    continue;
+                }
+
+                Path target = root.resolve(name).normalize();
+
+                if (!target.startsWith(root) || target.equals(root)) {
+                    if (target.equals(root) && entry.isDirectory()) {
+                        continue;
+                    }
+
+                    throw new ZipException("Entry " + entry.getName() + " in " + zip + " is outside of " + root);
+                }
+
+                if (entry.isDirectory()) {
+                    directories.add(target);
+                } else {
+                    files.put(entry, target);
+                    directories.add(target.getParent());
+                }
+            }
+
+            createDirectories(directories);
+
+            if (files.size() < MIN_PARALLEL_FILES || Runtime.getRuntime().availableProcessors() == 1) {
+                for (Map.Entry<ZipEntry, Path> file : files.entrySet()) {
+                    extractEntry(zipFile, file.getKey(), file.getValue());
+                }
+
+                return;
+            }
+
+            try {
+                new ArrayList<>(files.entrySet()).parallelStream().forEach(file -> {
+                    try {
+                        extractEntry(zipFile, file.getKey(), file.getValue());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Creates the given directories, skipping any which are the parent of another
+     * one since creating the deepest directory creates all of its parents anyway.
+     */
+    private static void createDirectories(TreeSet<Path> directories) throws IOException {
+        List<Path> deepest = new ArrayList<>();
+
+        // sorted paths put a directory right before its children, so walking them backwards sees children first
+        Path previous = null;
+        for (Path directory : directories.descendingSet()) {
+            if (previous == null || !previous.startsWith(directory)) {
+                deepest.add(directory);
+            }
+
+            previous = directory;
+        }
+
+        Collections.reverse(deepest);
+
+        for (Path directory : deepest) {
+            if (!Files.isDirectory(directory)) {
+                // something other than a directory may be in the way
+                for (Path parent = directory; parent != null; parent = parent.getParent()) {
+                    if (Files.exists(parent) && !Files.isDirectory(parent)) {
+                        Files.delete(parent);
+                        break;
+                    }
+                }
+
+                Files.createDirectories(directory);
+            }
+        }
+    }
+
+    private static void extractEntry(ZipFile zipFile, ZipEntry entry, Path target) throws IOException {
+        try {
+            Files.deleteIfExists(target);
+        } catch (DirectoryNotEmptyException e) {
+            FileUtils.deleteDirectory(target);
+        }
+
+        byte[] buffer = BUFFER.get();
+
+        try (InputStream in = zipFile.getInputStream(entry);
+                OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+}
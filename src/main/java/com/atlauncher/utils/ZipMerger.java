@@ -0,0 +1,536 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Merges the contents of zip files into a single zip file.
+ *
+ * Entries are copied across as is, still compressed, straight from the source
+ * file into the output, so nothing needs to be inflated and deflated again. Only
+ * the first entry with a given name is kept, with the names being read from each
+ * file's central directory up front.
+ *
+ * Source files using zip64 are read through {@link ZipFile} and recompressed
+ * instead. The merged file switches to zip64 for any entries, offsets or counts
+ * too big for a plain zip file, so has no limit on its size or entries.
+ */
+public final class ZipMerger implements Closeable {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+
+    private static final short ZIP64_EXTRA = 0x0001;
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    private static final long MAX_ZIP_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final FileChannel output;
+    private final Set<String> names = new HashSet<>();
+    private final List<Entry> entries = new ArrayList<>();
+
+    public ZipMerger(Path output) throws IOException {
+        this.output = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Adds an entry with the given contents, unless an entry with the same name has
+     * already been added.
+     *
+     * @return if the entry was added
+     */
+    public boolean add(String name, byte[] contents) throws IOException {
+        if (this.names.contains(name)) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+
+        return this.addCompressed(name, ZipEntry.DEFLATED, crc.getValue(), contents.length,
+                System.currentTimeMillis(), deflate(contents));
+    }
+
+    /**
+     * Adds an entry whose contents have already been compressed with the given
+     * method, unless an entry with the same name has already been added.
+     *
+     * @return if the entry was added
+     */
+    boolean addCompressed(String name, int method, long crc, long size, long modified, byte[] compressed)
+            throws IOException {
+        if (this.names.contains(name)) {
+            return false;
+        }
+
+        Entry entry = this.newEntry(name, method, crc, size, modified, compressed.length);
+
+        this.writeLocalHeader(entry);
+        this.writeFully(ByteBuffer.wrap(compressed));
+        this.addEntry(name, entry);
+
+        return true;
+    }
+
+    /**
+     * Adds an entry whose contents have already been compressed with the given
+     * method into the given file, unless an entry with the same name has already
+     * been added.
+     *
+     * @return if the entry was added
+     */
+    boolean addCompressed(String name, int method, long crc, long size, long modified, Path compressed)
+            throws IOException {
+        if (this.names.contains(name)) {
+            return false;
+        }
+
+        try (FileChannel source = FileChannel.open(compressed, StandardOpenOption.READ)) {
+            if (method == ZipEntry.STORED && source.size() != size) {
+                throw new ZipException(compressed + " changed while being added to the zip file");
+            }
+
+            Entry entry = this.newEntry(name, method, crc, size, modified, source.size());
+
+            this.writeLocalHeader(entry);
+            this.transferFrom(source, 0, entry.compressedSize);
+            this.addEntry(name, entry);
+        }
+
+        return true;
+    }
+
+    private Entry newEntry(String name, int method, long crc, long size, long modified, long compressedSize) {
+        Entry entry = new Entry();
+        entry.name = name.getBytes(StandardCharsets.UTF_8);
+        entry.flags = FLAG_UTF8;
+        entry.method = method;
+        entry.dosTime = toDosTime(modified);
+        entry.crc = crc;
+        entry.compressedSize = compressedSize;
+        entry.size = size;
+        entry.versionMadeBy = VERSION;
+
+        return entry;
+    }
+
+    /**
+     * Compresses the given bytes as raw deflate data, as stored in a zip file.
+     */
+    static byte[] deflate(byte[] contents) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+        try {
+            deflater.setInput(contents);
+            deflater.finish();
+
+            byte[] buffer = new byte[Math.max(64, contents.length + 64)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    byte[] bigger = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, bigger, 0, length);
+                    buffer = bigger;
+                }
+
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+
+            byte[] compressed = new byte[length];
+            System.arraycopy(buffer, 0, compressed, 0, length);
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Copies every entry from the given zip file, skipping any whose name has
+     * already been added.
+     */
+    public void addAll(Path zip) throws IOException {
+        try (FileChannel source = FileChannel.open(zip, StandardOpenOption.READ)) {
+            List<Entry> sourceEntries = readCentralDirectory(source);
+
+            if (sourceEntries == null) {
+                this.addAllRecompressed(zip);
+                return;
+            }
+
+            ByteBuffer localHeader = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            for (Entry entry : sourceEntries) {
+                String name = new String(entry.name, StandardCharsets.UTF_8);
+
+                if (this.names.contains(name)) {
+                    continue;
+                }
+
+                localHeader.clear();
+                readFully(source, localHeader, entry.offset);
+                if (localHeader.getInt(0) != LOCAL_HEADER) {
+                    throw new ZipException("Invalid local header for " + name + " in " + zip);
+                }
+
+                long dataStart = entry.offset + LOCAL_HEADER_SIZE + (localHeader.getShort(26) & 0xFFFF)
+                        + (localHeader.getShort(28) & 0xFFFF);
+
+                // sizes and crc come from the central directory, so there's no need for a data descriptor
+                entry.flags &= ~FLAG_DATA_DESCRIPTOR;
+
+                this.writeLocalHeader(entry);
+                this.transferFrom(source, dataStart, entry.compressedSize);
+                this.addEntry(name, entry);
+            }
+        }
+    }
+
+    private void addAllRecompressed(Path zip) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+
+                if (!this.names.contains(entry.getName())) {
+                    try (InputStream stream = zipFile.getInputStream(entry)) {
+                        this.add(entry.getName(), readAll(stream));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the central directory and closes the merged file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long centralDirectoryStart = this.output.position();
+
+            for (Entry entry : this.entries) {
+                // only the values too big for their normal field go in the zip64 extra field, in this order
+                boolean zip64Size = entry.size >= MAX_ZIP_SIZE;
+                boolean zip64CompressedSize = entry.compressedSize >= MAX_ZIP_SIZE;
+                boolean zip64Offset = entry.offset >= MAX_ZIP_SIZE;
+                int extraSize = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+                int extraLength = extraSize == 0 ? 0 : 4 + extraSize;
+
+                // the high byte is the system it was made on, which is kept as is
+                int versionMadeBy = extraSize == 0 ? entry.versionMadeBy
+                        : (entry.versionMadeBy & 0xFF00) | Math.max(entry.versionMadeBy & 0xFF, ZIP64_VERSION);
+
+                ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.name.length + extraLength)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(CENTRAL_HEADER);
+                header.putShort((short) versionMadeBy);
+                header.putShort((short) (extraSize == 0 ? VERSION : ZIP64_VERSION));
+                header.putShort((short) entry.flags);
+                header.putShort((short) entry.method);
+                header.putInt((int) entry.dosTime);
+                header.putInt((int) entry.crc);
+                header.putInt((int) Math.min(entry.compressedSize, MAX_ZIP_SIZE));
+                header.putInt((int) Math.min(entry.size, MAX_ZIP_SIZE));
+                header.putShort((short) entry.name.length);
+                header.putShort((short) extraLength);
+                header.putShort((short) 0);
+                header.putShort((short) 0);
+                header.putShort((short) entry.internalAttributes);
+                header.putInt((int) entry.externalAttributes);
+                header.putInt((int) Math.min(entry.offset, MAX_ZIP_SIZE));
+                header.put(entry.name);
+                if (extraSize != 0) {
+                    header.putShort(ZIP64_EXTRA);
+                    header.putShort((short) extraSize);
+                    if (zip64Size) {
+                        header.putLong(entry.size);
+                    }
+                    if (zip64CompressedSize) {
+                        header.putLong(entry.compressedSize);
+                    }
+                    if (zip64Offset) {
+                        header.putLong(entry.offset);
+                    }
+                }
+                header.flip();
+                this.writeFully(header);
+            }
+
+            long centralDirectoryEnd = this.output.position();
+            long centralDirectorySize = centralDirectoryEnd - centralDirectoryStart;
+
+            if (this.entries.size() >= MAX_ENTRIES || centralDirectorySize >= MAX_ZIP_SIZE
+                    || centralDirectoryStart >= MAX_ZIP_SIZE) {
+                this.writeZip64EndOfCentralDirectory(centralDirectoryStart, centralDirectorySize);
+            }
+
+            ByteBuffer end = ByteBuffer.allocate(END_OF_CENTRAL_DIRECTORY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(END_OF_CENTRAL_DIRECTORY);
+            end.putShort((short) 0);
+            end.putShort((short) 0);
+            end.putShort((short) Math.min(this.entries.size(), MAX_ENTRIES));
+            end.putShort((short) Math.min(this.entries.size(), MAX_ENTRIES));
+            end.putInt((int) Math.min(centralDirectorySize, MAX_ZIP_SIZE));
+            end.putInt((int) Math.min(centralDirectoryStart, MAX_ZIP_SIZE));
+            end.putShort((short) 0);
+            end.flip();
+            this.writeFully(end);
+        } finally {
+            this.output.close();
+        }
+    }
+
+    private void writeZip64EndOfCentralDirectory(long centralDirectoryStart, long centralDirectorySize)
+            throws IOException {
+        long zip64EndStart = this.output.position();
+
+        ByteBuffer end = ByteBuffer
+                .allocate(ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE + ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY);
+        // size of the rest of the record, not counting the signature and this field
+        end.putLong(ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE - 12);
+        end.putShort((short) ZIP64_VERSION);
+        end.putShort((short) ZIP64_VERSION);
+        end.putInt(0);
+        end.putInt(0);
+        end.putLong(this.entries.size());
+        end.putLong(this.entries.size());
+        end.putLong(centralDirectorySize);
+        end.putLong(centralDirectoryStart);
+
+        end.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR);
+        end.putInt(0);
+        end.putLong(zip64EndStart);
+        end.putInt(1);
+        end.flip();
+        this.writeFully(end);
+    }
+
+    private void addEntry(String name, Entry entry) {
+        this.names.add(name);
+        this.entries.add(entry);
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        entry.offset = this.output.position();
+
+        // the local header has no offset in it, and both sizes go in the zip64 extra field if either is too big
+        boolean zip64 = entry.size >= MAX_ZIP_SIZE || entry.compressedSize >= MAX_ZIP_SIZE;
+        int extraLength = zip64 ? 20 : 0;
+
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + entry.name.length + extraLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER);
+        header.putShort((short) (zip64 ? ZIP64_VERSION : VERSION));
+        header.putShort((short) entry.flags);
+        header.putShort((short) entry.method);
+        header.putInt((int) entry.dosTime);
+        header.putInt((int) entry.crc);
+        header.putInt((int) (zip64 ? MAX_ZIP_SIZE : entry.compressedSize));
+        header.putInt((int) (zip64 ? MAX_ZIP_SIZE : entry.size));
+        header.putShort((short) entry.name.length);
+        header.putShort((short) extraLength);
+        header.put(entry.name);
+        if (zip64) {
+            header.putShort(ZIP64_EXTRA);
+            header.putShort((short) 16);
+            header.putLong(entry.size);
+            header.putLong(entry.compressedSize);
+        }
+        header.flip();
+        this.writeFully(header);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.output.write(buffer);
+        }
+    }
+
+    private void transferFrom(FileChannel source, long position, long count) throws IOException {
+        long transferred = 0;
+
+        while (transferred < count) {
+            long read = source.transferTo(position + transferred, count - transferred, this.output);
+
+            if (read <= 0) {
+                throw new ZipException("Unexpected end of zip file");
+            }
+
+            transferred += read;
+        }
+    }
+
+    /**
+     * Reads the entries from the central directory of the given zip file.
+     *
+     * @return the entries, or null if the file uses zip64 and can't be copied as is
+     */
+    private static List<Entry> readCentralDirectory(FileChannel source) throws IOException {
+        long size = source.size();
+        int tailSize = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF);
+
+        ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(source, tail, size - tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                end = i;
+                break;
+            }
+        }
+
+        if (end == -1) {
+            throw new ZipException("Couldn't find the end of the central directory");
+        }
+
+        int count = tail.getShort(end + 10) & 0xFFFF;
+        long centralDirectorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long centralDirectoryStart = tail.getInt(end + 16) & 0xFFFFFFFFL;
+
+        if (count == 0xFFFF || centralDirectorySize == MAX_ZIP_SIZE || centralDirectoryStart == MAX_ZIP_SIZE) {
+            return null;
+        }
+
+        if (centralDirectoryStart + centralDirectorySize > size) {
+            throw new ZipException("Invalid central directory");
+        }
+
+        ByteBuffer centralDirectory = ByteBuffer.allocate((int) centralDirectorySize).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(source, centralDirectory, centralDirectoryStart);
+
+        List<Entry> entries = new ArrayList<>(count);
+        int position = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (position + CENTRAL_HEADER_SIZE > centralDirectory.limit()
+                    || centralDirectory.getInt(position) != CENTRAL_HEADER) {
+                throw new ZipException("Invalid central directory entry");
+            }
+
+            Entry entry = new Entry();
+            entry.versionMadeBy = centralDirectory.getShort(position + 4) & 0xFFFF;
+            entry.flags = centralDirectory.getShort(position + 8) & 0xFFFF;
+            entry.method = centralDirectory.getShort(position + 10) & 0xFFFF;
+            entry.dosTime = centralDirectory.getInt(position + 12) & 0xFFFFFFFFL;
+            entry.crc = centralDirectory.getInt(position + 16) & 0xFFFFFFFFL;
+            entry.compressedSize = centralDirectory.getInt(position + 20) & 0xFFFFFFFFL;
+            entry.size = centralDirectory.getInt(position + 24) & 0xFFFFFFFFL;
+            int nameLength = centralDirectory.getShort(position + 28) & 0xFFFF;
+            int extraLength = centralDirectory.getShort(position + 30) & 0xFFFF;
+            int commentLength = centralDirectory.getShort(position + 32) & 0xFFFF;
+            entry.internalAttributes = centralDirectory.getShort(position + 36) & 0xFFFF;
+            entry.externalAttributes = centralDirectory.getInt(position + 38) & 0xFFFFFFFFL;
+            entry.offset = centralDirectory.getInt(position + 42) & 0xFFFFFFFFL;
+
+            if (entry.compressedSize == MAX_ZIP_SIZE || entry.size == MAX_ZIP_SIZE || entry.offset == MAX_ZIP_SIZE) {
+                return null;
+            }
+
+            entry.name = new byte[nameLength];
+            centralDirectory.position(position + CENTRAL_HEADER_SIZE);
+            centralDirectory.get(entry.name);
+
+            entries.add(entry);
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+
+        return entries;
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = source.read(buffer, position + buffer.position());
+
+            if (read == -1) {
+                throw new ZipException("Unexpected end of zip file");
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long toDosTime(long time) {
+        java.util.Date date = new java.util.Date(time);
+
+        return ((date.getYear() - 80) << 25) | ((date.getMonth() + 1) << 21) | (date.getDate() << 16)
+                | (date.getHours() << 11) | (date.getMinutes() << 5) | (date.getSeconds() >> 1);
+    }
+
+    private static final class Entry {
+        private byte[] name;
+        private int versionMadeBy;
+        private int flags;
+        private int method;
+        private long dosTime;
+        private long crc;
+        private long compressedSize;
+        private long size;
+        private int internalAttributes;
+        private long externalAttributes;
+        private long offset;
+    }
+}
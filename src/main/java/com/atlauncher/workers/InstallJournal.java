@@ -0,0 +1,147 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.workers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.atlauncher.managers.LogManager;
+import com.atlauncher.utils.FileUtils;
+
+/**
+ * A journal of the install stages that have finished, kept in the install's temp
+ * directory so that if the install is cancelled or the launcher is closed part way
+ * through, trying again can skip anything that's already been done.
+ *
+ * The first line of the journal is a key describing the install, such as the pack,
+ * version and loader. If the key doesn't match, the journal is for a different
+ * install and is started again. Each finished stage is then appended on its own
+ * line and flushed to disk straight away, so a crash can lose at most the stage
+ * that was running.
+ */
+public final class InstallJournal implements StageGraph.Checkpoints {
+    public static final String FILENAME = "install.journal";
+
+    // journals older than this are for installs that probably aren't going to be tried again
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+    private final Path file;
+    private final String key;
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+    public InstallJournal(Path directory, String key) {
+        this.file = directory.resolve(FILENAME);
+        this.key = key.replaceAll("[\r\n]", " ");
+
+        this.load();
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(this.file)) {
+            return;
+        }
+
+        try {
+            List<String> lines = Files.readAllLines(this.file, StandardCharsets.UTF_8);
+
+            if (lines.isEmpty() || !lines.get(0).equals(this.key)) {
+                LogManager.debug("Install journal is for a different install, starting again", 3);
+                FileUtils.delete(this.file);
+                return;
+            }
+
+            lines.stream().skip(1).filter(line -> !line.isEmpty()).forEach(this.completed::add);
+
+            if (!this.completed.isEmpty()) {
+                LogManager.info("Resuming install, already finished " + String.join(", ", this.completed));
+            }
+        } catch (IOException e) {
+            LogManager.logStackTrace("Error reading install journal, starting again", e, false);
+            this.completed.clear();
+        }
+    }
+
+    @Override
+    public boolean isComplete(String stage) {
+        return this.completed.contains(stage);
+    }
+
+    @Override
+    public synchronized void complete(String stage) {
+        if (!this.completed.add(stage)) {
+            return;
+        }
+
+        boolean isNew = !Files.exists(this.file);
+        String text = (isNew ? this.key + "\n" : "") + stage + "\n";
+
+        try {
+            FileUtils.createDirectory(this.file.getParent());
+
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            // not being able to write the journal only means the stage will be run again next time
+            LogManager.logStackTrace("Error writing install journal", e, false);
+        }
+    }
+
+    /**
+     * Removes the journal once the install has finished, since there's nothing left
+     * to resume.
+     */
+    public synchronized void delete() {
+        this.completed.clear();
+
+        if (Files.exists(this.file)) {
+            FileUtils.delete(this.file);
+        }
+    }
+
+    /**
+     * Checks if the given temp directory has a journal for an install that might
+     * still be resumed, so it shouldn't be cleaned up.
+     */
+    public static boolean isResumable(Path directory) {
+        Path file = directory.resolve(FILENAME);
+
+        try {
+            return Files.isRegularFile(file)
+                    && System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() < MAX_AGE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -28,6 +28,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.swing.SwingWorker;
@@ -48,6 +58,7 @@ import com.atlauncher.data.curse.CurseAttachment;
 import com.atlauncher.data.curse.CurseFile;
 import com.atlauncher.data.curse.CurseMod;
 import com.atlauncher.data.curse.pack.CurseManifest;
+import com.atlauncher.data.curse.pack.CurseManifestFile;
 import com.atlauncher.data.curse.pack.CurseModLoader;
 import com.atlauncher.data.json.Delete;
 import com.atlauncher.data.json.Deletes;
@@ -57,6 +68,7 @@ import com.atlauncher.data.json.Keeps;
 import com.atlauncher.data.json.Mod;
 import com.atlauncher.data.json.ModType;
 import com.atlauncher.data.json.Version;
+import com.atlauncher.data.json.VersionDiff;
 import com.atlauncher.data.minecraft.ArgumentRule;
 import com.atlauncher.data.minecraft.Arguments;
 import com.atlauncher.data.minecraft.AssetIndex;
@@ -81,14 +93,18 @@ import com.atlauncher.managers.ServerManager;
 import com.atlauncher.network.Analytics;
 import com.atlauncher.network.DownloadPool;
 import com.atlauncher.network.ErrorReporting;
+import com.atlauncher.network.VerifiedFileIndex;
 import com.atlauncher.utils.CurseApi;
+import com.atlauncher.utils.DirectoryCopier;
 import com.atlauncher.utils.FileUtils;
+import com.atlauncher.utils.Hashing;
+import com.atlauncher.utils.Trash;
 import com.atlauncher.utils.Utils;
+import com.atlauncher.utils.ZipExtractor;
 import com.atlauncher.utils.walker.CaseFileVisitor;
 import com.google.gson.reflect.TypeToken;
 
 import org.mini2Dx.gettext.GetText;
-import org.zeroturnaround.zip.ZipUtil;
 
 import okhttp3.OkHttpClient;
 
@@ -110,6 +126,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
     public final File manifestFile;
 
     public boolean isReinstall;
+    public boolean isUpdate;
     public boolean isServer;
     public boolean instanceIsCorrupt;
     public boolean saveMods;
@@ -138,13 +155,23 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
     public String mainClass;
     public Arguments arguments;
 
+    private StageGraph stages = null;
+    private InstallJournal journal = null;
+
+    // set when updating an instance by only changing what's different from the installed version
+    private VersionDiff updateDiff = null;
+    private List<Mod> modsToInstall = null;
+    private List<DisableableMod> modsToRemove = null;
+    private Map<String, DisableableMod> modsToKeep = null;
+
     public InstanceInstaller(String name, com.atlauncher.data.Pack pack, com.atlauncher.data.PackVersion version,
-            boolean isReinstall, boolean isServer, boolean saveMods, String shareCode, boolean showModsChooser,
-            LoaderVersion loaderVersion, CurseManifest curseManifest, File manifestFile) {
+            boolean isReinstall, boolean isUpdate, boolean isServer, boolean saveMods, String shareCode,
+            boolean showModsChooser, LoaderVersion loaderVersion, CurseManifest curseManifest, File manifestFile) {
         this.name = name;
         this.pack = pack;
         this.version = version;
         this.isReinstall = isReinstall;
+        this.isUpdate = isUpdate;
         this.isServer = isServer;
         this.saveMods = saveMods;
         this.shareCode = shareCode;
@@ -199,24 +226,28 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                 return false;
             }
 
-            backupSelectFiles();
-            addPercent(5);
+            if (planIncrementalUpdate()) {
+                updateIncrementally();
+            } else {
+                backupSelectFiles();
+                addPercent(5);
+
+                prepareFilesystem();
 
-            prepareFilesystem();
+                if (this.packVersion.loader != null) {
+                    this.loader = this.packVersion.getLoader().getLoader(this.temp.resolve("loader").toFile(), this,
+                            this.loaderVersion);
 
-            if (this.packVersion.loader != null) {
-                this.loader = this.packVersion.getLoader().getLoader(this.temp.resolve("loader").toFile(), this,
-                        this.loaderVersion);
+                    if (this.loaderVersion == null) {
+                        this.loaderVersion = this.loader.getLoaderVersion();
+                    }
 
-                if (this.loaderVersion == null) {
-                    this.loaderVersion = this.loader.getLoaderVersion();
+                    downloadLoader();
                 }
 
-                downloadLoader();
+                install();
             }
 
-            install();
-
             if (isCancelled()) {
                 return false;
             }
@@ -305,15 +336,26 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
             packVersion.loader.className = "com.atlauncher.data.minecraft.loaders.forge.ForgeLoader";
         }
 
-        packVersion.mods = curseManifest.files.parallelStream().map(file -> {
-            CurseMod curseMod = CurseApi.getModById(file.projectID);
-            CurseFile curseFile = CurseApi.getFileForMod(file.projectID, file.fileID);
+        // look everything up in a few batches rather than two requests per file
+        Map<Integer, CurseMod> curseMods = CurseApi
+                .getModsByIds(curseManifest.files.stream().map(file -> file.projectID).collect(Collectors.toList()));
+        Map<Integer, CurseFile> curseFiles = CurseApi.getFilesByIds(curseManifest.files.stream()
+                .collect(Collectors.toMap(file -> file.fileID, file -> file.projectID, (a, b) -> a)));
+
+        packVersion.mods = new ArrayList<>();
+        for (CurseManifestFile file : curseManifest.files) {
+            CurseMod curseMod = curseMods.get(file.projectID);
+            CurseFile curseFile = curseFiles.get(file.fileID);
+
+            if (curseMod == null || curseFile == null) {
+                throw new Exception("Failed to get info for file " + file.fileID + " of Curse mod " + file.projectID);
+            }
 
             Mod mod = curseFile.convertToMod(curseMod);
             mod.optional = !file.required;
 
-            return mod;
-        }).collect(Collectors.toList());
+            packVersion.mods.add(mod);
+        }
 
         hideSubProgressBar();
     }
@@ -444,89 +486,279 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         }
     }
 
-    private Boolean install() throws Exception {
-        this.instanceIsCorrupt = true; // From this point on the instance has become corrupt
+    /**
+     * Checks that an installed mod is still exactly the file the pack version says it
+     * should be, so that a corrupt or partly downloaded mod isn't kept by an update.
+     * Mods which are extracted or otherwise changed when installed, or which have no
+     * hash to check against, can't be checked so are never kept.
+     */
+    private boolean isInstalledModIntact(Mod mod, File file) {
+        if (!file.isFile() || !VersionDiff.isStandalone(mod)) {
+            return false;
+        }
 
-        determineMainClass();
-        determineArguments();
+        Path path = file.toPath();
+
+        if (mod.fingerprint != null) {
+            String expected = String.valueOf(mod.fingerprint);
+
+            if (VerifiedFileIndex.isVerified(path, expected)) {
+                return true;
+            }
+
+            try {
+                if (Hashing.murmur(path) == mod.fingerprint) {
+                    VerifiedFileIndex.markVerified(path, expected);
+                    return true;
+                }
+            } catch (IOException e) {
+                LogManager.logStackTrace("Failed to hash installed mod " + file, e, false);
+            }
 
-        downloadResources();
-        if (isCancelled()) {
             return false;
         }
 
-        downloadMinecraft();
-        if (isCancelled()) {
+        if (mod.md5 == null || mod.md5.isEmpty()) {
             return false;
         }
 
-        downloadLoggingClient();
-        if (isCancelled()) {
-            return false;
+        if (VerifiedFileIndex.isVerified(path, mod.md5)) {
+            return true;
         }
 
-        downloadLibraries();
-        if (isCancelled()) {
-            return false;
+        // despite the name, this can be a SHA-1 hash
+        Hashing.HashCode hash = mod.md5.length() == 40 ? Hashing.sha1(path) : Hashing.md5(path);
+
+        if (hash.equals(Hashing.HashCode.fromString(mod.md5))) {
+            VerifiedFileIndex.markVerified(path, mod.md5);
+            return true;
         }
 
-        organiseLibraries();
-        if (isCancelled()) {
+        return false;
+    }
+
+    /**
+     * Works out if this update can be done by only adding and removing the mods that
+     * have changed since the installed version, rather than a full reinstall. If it
+     * can, the mods to install, remove and keep are worked out ready for
+     * {@link #updateIncrementally()}.
+     *
+     * Reinstalling the same version is done to repair an instance, so that always
+     * does a full reinstall.
+     */
+    private boolean planIncrementalUpdate() {
+        if (!this.isReinstall || !this.isUpdate || this.isServer || this.instanceV2 == null
+                || this.curseManifest != null || this.version.isDev || this.instanceV2.launcher.isDev
+                || this.instanceV2.launcher.version == null || !this.pack.name.equals(this.instanceV2.launcher.pack)
+                || this.version.version.equals(this.instanceV2.launcher.version)) {
             return false;
         }
 
-        installLoader();
-        if (isCancelled()) {
+        if (this.loaderVersion != null && (this.instanceV2.launcher.loaderVersion == null
+                || !this.loaderVersion.version.equals(this.instanceV2.launcher.loaderVersion.version))) {
             return false;
         }
 
-        downloadMods();
-        if (isCancelled()) {
+        com.atlauncher.data.json.Version previousVersion;
+        try {
+            previousVersion = com.atlauncher.network.Download.build().cached()
+                    .setUrl(this.pack.getJsonDownloadUrl(this.instanceV2.launcher.version))
+                    .asClass(com.atlauncher.data.json.Version.class);
+        } catch (Exception e) {
+            LogManager.logStackTrace("Failed to get the installed pack version definition", e, false);
             return false;
         }
 
-        installMods();
-        if (isCancelled()) {
+        if (previousVersion == null) {
             return false;
         }
 
-        installLegacyJavaFixer();
-        if (isCancelled()) {
-            return false;
+        VersionDiff diff = new VersionDiff(previousVersion, this.packVersion);
+        List<DisableableMod> installedMods = this.instanceV2.launcher.mods.stream().filter(mod -> !mod.userAdded)
+                .collect(Collectors.toList());
+
+        Map<String, DisableableMod> keep = new HashMap<>();
+        List<Mod> install = new ArrayList<>();
+        for (Mod mod : this.selectedMods) {
+            DisableableMod installed = installedMods.stream()
+                    .filter(installedMod -> installedMod.name.equalsIgnoreCase(mod.name)).findFirst().orElse(null);
+
+            File installedFile = installed == null ? null
+                    : (installed.isDisabled() ? installed.getDisabledFile(this.instanceV2)
+                            : installed.getFile(this.instanceV2));
+
+            if (installedFile != null && diff.isModUnchanged(mod) && this.isInstalledModIntact(mod, installedFile)) {
+                keep.put(mod.name.toLowerCase(), installed);
+            } else {
+                install.add(mod);
+            }
         }
 
-        runCaseConversion();
-        if (isCancelled()) {
+        List<DisableableMod> remove = installedMods.stream().filter(
+                mod -> diff.wasModInPreviousVersion(mod.name) && !keep.containsKey(mod.name.toLowerCase()))
+                .collect(Collectors.toList());
+
+        List<Mod> changedMods = new ArrayList<>(install);
+        previousVersion.mods.stream()
+                .filter(mod -> remove.stream().anyMatch(removed -> removed.name.equalsIgnoreCase(mod.name)))
+                .forEach(changedMods::add);
+
+        if (!diff.canUpdateIncrementally(changedMods)) {
+            LogManager.debug("Update from " + this.instanceV2.launcher.version + " needs a full reinstall", 1);
             return false;
         }
 
-        runActions();
-        if (isCancelled()) {
-            return false;
+        this.updateDiff = diff;
+        this.modsToInstall = install;
+        this.modsToRemove = remove;
+        this.modsToKeep = keep;
+
+        return true;
+    }
+
+    /**
+     * Updates the instance by only removing and installing the mods that have
+     * changed, and the configs if they've changed, leaving everything else in place.
+     */
+    private void updateIncrementally() throws Exception {
+        LogManager.info("Updating from " + this.instanceV2.launcher.version + " by installing "
+                + this.modsToInstall.size() + " and removing " + this.modsToRemove.size() + " mods");
+
+        this.instanceIsCorrupt = true;
+
+        // the loader, libraries and Minecraft version haven't changed, so neither has how it's launched
+        this.mainClass = this.instanceV2.mainClass;
+        this.arguments = this.instanceV2.arguments;
+        this.assetsMapToResources = this.instanceV2.launcher.assetsMapToResources;
+
+        if (this.loaderVersion == null) {
+            this.loaderVersion = this.instanceV2.launcher.loaderVersion;
         }
 
-        installConfigs();
-        if (isCancelled()) {
-            return false;
+        boolean configsChanged = this.updateDiff.haveConfigsChanged();
+
+        if (configsChanged) {
+            backupSelectFiles();
+
+            if (Files.isDirectory(this.root.resolve("config"))) {
+                Trash.put(this.root.resolve("config"));
+            }
+        }
+        addPercent(5);
+
+        fireTask(GetText.tr("Removing Old Mods"));
+        for (DisableableMod mod : this.modsToRemove) {
+            File file = mod.isDisabled() ? mod.getDisabledFile(this.instanceV2) : mod.getFile(this.instanceV2);
+
+            if (file != null && file.exists()) {
+                Utils.delete(file);
+            }
+        }
+
+        runDeletes();
+        createDirectories();
+
+        this.stages = new StageGraph(this::isCancelled)
+                .add("mods", () -> this.downloadAndInstallMods(this.modsToInstall))
+                .add("caseConversion", this::runCaseConversion, "mods");
+
+        if (configsChanged) {
+            this.stages.add("configs", this::downloadConfigs).add("installConfigs", this::installConfigs, "configs",
+                    "caseConversion");
+        }
+
+        this.setTotalBytes(0L);
+
+        if (!this.stages.run()) {
+            return;
+        }
+
+        // Copy over common configs if any
+        if (FileSystem.COMMON.toFile().listFiles().length != 0) {
+            new DirectoryCopier(FileSystem.COMMON, this.root).skipIdentical().copy();
+        }
+
+        if (configsChanged) {
+            restoreSelectFiles();
+        }
+
+        // mods that were left in place keep their entries, so things like being disabled stick
+        this.modsInstalled = this.modsInstalled.stream()
+                .map(mod -> mod.userAdded ? mod : this.modsToKeep.getOrDefault(mod.name.toLowerCase(), mod))
+                .collect(Collectors.toList());
+
+        // along with anything the launcher added itself, such as the Legacy Java Fixer
+        this.instanceV2.launcher.mods.stream()
+                .filter(mod -> !mod.userAdded && !this.updateDiff.wasModInPreviousVersion(mod.name))
+                .forEach(this.modsInstalled::add);
+    }
+
+    private Boolean install() throws Exception {
+        this.instanceIsCorrupt = true; // From this point on the instance has become corrupt
+
+        determineMainClass();
+        determineArguments();
+
+        this.journal = new InstallJournal(this.temp, getJournalKey());
+
+        // stages only wait on what they actually need, so downloads happen while the loader is installed. Stages
+        // which only write to shared folders outside the instance can be skipped if a previous attempt finished them
+        this.stages = new StageGraph(this::isCancelled).withCheckpoints(this.journal)
+                .add("resources", this::downloadResources)
+                .addResumable("loggingClient", this::downloadLoggingClient)
+                .addResumable("libraries", this::downloadLibraries)
+                .add("mods", () -> this.downloadAndInstallMods(this.selectedMods))
+                .add("configs", this::downloadConfigs)
+                .add("organiseLibraries", this::organiseLibraries, "libraries");
+
+        // servers get a copy of the jar and the loader's processed libraries in their folder, which is removed if
+        // the install fails, so these have to be done again
+        if (this.isServer) {
+            this.stages.add("minecraft", this::downloadMinecraft).add("loader", this::installLoader, "minecraft",
+                    "libraries");
+        } else {
+            this.stages.addResumable("minecraft", this::downloadMinecraft).addResumable("loader",
+                    this::installLoader, "minecraft", "libraries");
         }
 
-        downloadInstanceImage();
-        if (isCancelled()) {
+        this.stages.add("legacyJavaFixer", this::installLegacyJavaFixer, "mods")
+                .add("caseConversion", this::runCaseConversion, "legacyJavaFixer")
+                .add("actions", this::runActions, "caseConversion")
+                // configs can overwrite anything, so they go in once everything else has
+                .add("installConfigs", this::installConfigs, "configs", "actions", "resources", "minecraft",
+                        "loggingClient", "organiseLibraries", "loader")
+                .add("instanceImage", this::downloadInstanceImage, "installConfigs");
+
+        this.setTotalBytes(0L);
+
+        if (!this.stages.run()) {
             return false;
         }
 
         // Copy over common configs if any
         if (FileSystem.COMMON.toFile().listFiles().length != 0) {
-            Utils.copyDirectory(FileSystem.COMMON.toFile(), this.root.toFile());
+            new DirectoryCopier(FileSystem.COMMON, this.root).skipIdentical().copy();
         }
 
         restoreSelectFiles();
 
         installServerBootScripts();
 
+        this.journal.delete();
+
         return true;
     }
 
+    /**
+     * Gets the key for this install's journal, made up of everything that changes
+     * what the resumable stages do.
+     */
+    private String getJournalKey() {
+        return String.join("|", this.pack.name, this.version.version, String.valueOf(this.version.hash),
+                this.packVersion.minecraft, this.loaderVersion == null ? "" : this.loaderVersion.version,
+                String.valueOf(this.isServer), this.root.toAbsolutePath().toString());
+    }
+
     private void saveInstanceJson() {
         InstanceV2 instance = new InstanceV2(this.minecraftVersion);
         instance.ROOT = this.root;
@@ -538,7 +770,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
             instanceLauncher = this.instanceV2.launcher;
         }
 
-        instance.libraries = this.getLibraries();
+        instance.libraries = this.updateDiff != null ? this.instanceV2.libraries : this.getLibraries();
         instance.mainClass = this.mainClass;
         instance.arguments = this.arguments;
 
@@ -709,7 +941,6 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
 
         fireTask(GetText.tr("Downloading Resources"));
         fireSubProgressUnknown();
-        this.totalBytes = this.downloadedBytes = 0;
 
         MojangAssetIndex assetIndex = this.minecraftVersion.assetIndex;
 
@@ -737,7 +968,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
 
         DownloadPool smallPool = pool.downsize();
 
-        this.setTotalBytes(smallPool.totalSize());
+        this.addTotalBytes(smallPool.totalSize());
         this.fireSubProgress(0);
 
         smallPool.downloadAll();
@@ -750,9 +981,9 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                 Path downloadedFile = FileSystem.RESOURCES_OBJECTS.resolve(filename);
 
                 if (index.mapToResources) {
-                    FileUtils.copyFile(downloadedFile, this.root.resolve("resources/" + key), true);
+                    FileUtils.linkFile(downloadedFile, this.root.resolve("resources/" + key), true);
                 } else if (assetIndex.id.equalsIgnoreCase("legacy")) {
-                    FileUtils.copyFile(downloadedFile, FileSystem.RESOURCES_VIRTUAL_LEGACY.resolve(key),
+                    FileUtils.linkFile(downloadedFile, FileSystem.RESOURCES_VIRTUAL_LEGACY.resolve(key),
                         true);
                 }
             });
@@ -765,19 +996,17 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         addPercent(5);
         fireTask(GetText.tr("Downloading Minecraft"));
         fireSubProgressUnknown();
-        totalBytes = 0;
-        downloadedBytes = 0;
 
         MojangDownloads downloads = this.minecraftVersion.downloads;
 
         MojangDownload mojangDownload = this.isServer ? downloads.server : downloads.client;
 
-        setTotalBytes(mojangDownload.size);
+        this.addTotalBytes(mojangDownload.size);
 
         com.atlauncher.network.Download.build().setUrl(mojangDownload.url).hash(mojangDownload.sha1)
                 .size(mojangDownload.size).downloadTo(getMinecraftJarLibrary().toPath())
                 .copyTo(this.isServer ? getMinecraftJar().toPath() : null).withInstanceInstaller(this)
-                .withHttpClient(Network.createProgressClient(this)).downloadFile();
+                .withHttpClient(Network.createProgressClient(this)).segmented().downloadFile();
 
         hideSubProgressBar();
     }
@@ -809,7 +1038,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         fireSubProgressUnknown();
 
         LoggingFile loggingFile = this.minecraftVersion.logging.client.file;
-        setTotalBytes(loggingFile.size);
+        this.addTotalBytes(loggingFile.size);
 
         com.atlauncher.network.Download.build().cached().setUrl(loggingFile.url).hash(loggingFile.sha1)
                 .size(loggingFile.size).downloadTo(FileSystem.RESOURCES_LOG_CONFIGS.resolve(loggingFile.id))
@@ -951,7 +1180,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
 
         DownloadPool smallPool = pool.downsize();
 
-        this.setTotalBytes(smallPool.totalSize());
+        this.addTotalBytes(smallPool.totalSize());
         this.fireSubProgress(0);
 
         smallPool.downloadAll();
@@ -974,7 +1203,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
 
                         serverFile.getParentFile().mkdirs();
 
-                        Utils.copyFile(libraryFile, serverFile, true);
+                        FileUtils.linkFile(libraryFile.toPath(), serverFile.toPath(), true);
                     });
 
             if (this.loader != null && this.loader.getInstallLibraries() != null) {
@@ -989,7 +1218,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
 
                                 serverFile.getParentFile().mkdirs();
 
-                                Utils.copyFile(libraryFile, serverFile, true);
+                                FileUtils.linkFile(libraryFile.toPath(), serverFile.toPath(), true);
                             }
                         });
             }
@@ -1002,7 +1231,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                 if (forgeLibrary != null) {
                     File extractedLibraryFile = FileSystem.LIBRARIES.resolve(forgeLibrary.downloads.artifact.path)
                             .toFile();
-                    Utils.copyFile(extractedLibraryFile, new File(this.root.toFile(), this.loader.getServerJar()),
+                    FileUtils.linkFile(extractedLibraryFile.toPath(), this.root.resolve(this.loader.getServerJar()),
                             true);
                 }
             }
@@ -1027,10 +1256,14 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         hideSubProgressBar();
     }
 
-    private void downloadMods() {
-        addPercent(25);
+    /**
+     * Downloads the selected mods, installing each one as soon as its download is done
+     * so that copying and extracting mods happens while the rest are downloading.
+     */
+    private void downloadAndInstallMods(List<Mod> mods) {
+        addPercent(50);
 
-        if (selectedMods.size() == 0) {
+        if (mods.size() == 0) {
             return;
         }
 
@@ -1039,8 +1272,10 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
 
         OkHttpClient httpClient = Network.createProgressClient(this);
         DownloadPool pool = new DownloadPool();
+        // mods downloading to the same file share a download, so keep track of all of them
+        Map<com.atlauncher.network.Download, List<Mod>> modsByDownload = new HashMap<>();
 
-        this.selectedMods.stream().filter(mod -> mod.download != DownloadType.browser).forEach(mod -> {
+        mods.stream().filter(mod -> mod.download != DownloadType.browser).forEach(mod -> {
             com.atlauncher.network.Download download = new com.atlauncher.network.Download()
                     .setUrl(mod.getDownloadUrl()).downloadTo(FileSystem.DOWNLOADS.resolve(mod.getFile())).hash(mod.md5)
                     .size(mod.filesize).withInstanceInstaller(this).withHttpClient(httpClient);
@@ -1049,44 +1284,101 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                 download = download.fingerprint(mod.fingerprint);
             }
 
+            modsByDownload.computeIfAbsent(download, key -> new ArrayList<>()).add(mod);
             pool.add(download);
         });
 
-        DownloadPool smallPool = pool.downsize();
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ExecutorService installExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ModInstaller-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
 
-        this.setTotalBytes(smallPool.totalSize());
-        this.fireSubProgress(0);
+        // downloads finish on the download pool's threads, so this is added to from more than one thread
+        Queue<CompletableFuture<Void>> installs = new ConcurrentLinkedQueue<>();
+        Consumer<Mod> install = mod -> {
+            if (installs.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                return;
+            }
 
-        smallPool.downloadAll();
+            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> this.installMod(mod), installExecutor);
 
-        fireSubProgressUnknown();
+            // once one mod fails, don't bother installing the rest
+            future.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    installs.forEach(other -> other.cancel(false));
+                }
+            });
 
-        this.selectedMods.stream().filter(mod -> mod.download == DownloadType.browser)
-                .forEach(mod -> mod.download(this));
+            installs.add(future);
+        };
 
-        hideSubProgressBar();
-    }
+        try {
+            DownloadPool smallPool = pool.downsize();
 
-    private void installMods() {
-        addPercent(25);
+            // anything already downloaded can be installed straight away
+            modsByDownload.forEach((download, downloadMods) -> {
+                if (!smallPool.contains(download)) {
+                    downloadMods.forEach(install);
+                }
+            });
 
-        if (this.selectedMods.size() == 0) {
-            return;
+            this.addTotalBytes(smallPool.totalSize());
+            this.fireSubProgress(0);
+
+            smallPool.downloadAll(download -> modsByDownload.get(download).forEach(install));
+
+            fireSubProgressUnknown();
+
+            mods.stream().filter(mod -> mod.download == DownloadType.browser).forEach(mod -> {
+                mod.download(this);
+                install.accept(mod);
+            });
+        } finally {
+            installExecutor.shutdown();
         }
 
         fireTask(GetText.tr("Installing Mods"));
-        fireSubProgressUnknown();
 
-        double subPercentPerMod = 100.0 / this.selectedMods.size();
+        try {
+            installExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            installExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        }
 
-        this.selectedMods.parallelStream().forEach(mod -> {
-            mod.install(this);
-            addSubPercent(subPercentPerMod);
-        });
+        // throw the first failure, the same as if the mods had been installed on this thread
+        for (CompletableFuture<Void> future : installs) {
+            try {
+                future.join();
+            } catch (CancellationException e) {
+                // cancelled because another mod failed, which is thrown instead
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+
+                throw e;
+            }
+        }
+
+        mods.stream().filter(mod -> mod.mustInstallInOrder(this) && !isCancelled())
+                .forEach(mod -> mod.install(this));
 
         hideSubProgressBar();
     }
 
+    private void installMod(Mod mod) {
+        if (!isCancelled() && !mod.mustInstallInOrder(this)) {
+            mod.install(this);
+        }
+    }
+
     private void installLegacyJavaFixer() {
         addPercent(5);
 
@@ -1151,9 +1443,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         }
     }
 
-    private void installConfigs() throws Exception {
-        addPercent(5);
-
+    private void downloadConfigs() throws Exception {
         if (this.packVersion.noConfigs) {
             return;
         }
@@ -1169,12 +1459,26 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                     .size(this.packVersion.configs.filesize).hash(this.packVersion.configs.sha1)
                     .withInstanceInstaller(this).withHttpClient(Network.createProgressClient(this));
 
-            this.setTotalBytes(configsDownload.getFilesize());
+            this.addTotalBytes(configsDownload.getFilesize());
             configsDownload.downloadFile();
 
             if (!configs.exists()) {
                 throw new Exception("Failed to download configs for pack!");
             }
+        } else {
+            ZipExtractor.extract(manifestFile.toPath(), this.temp.resolve("manifest"));
+        }
+    }
+
+    private void installConfigs() throws Exception {
+        addPercent(5);
+
+        if (this.packVersion.noConfigs) {
+            return;
+        }
+
+        if (curseManifest == null) {
+            File configs = this.temp.resolve("Configs.zip").toFile();
 
             // file is empty, so don't try to extract
             if (configs.length() == 0L) {
@@ -1184,12 +1488,11 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
             fireSubProgressUnknown();
             fireTask(GetText.tr("Extracting Configs"));
 
-            ZipUtil.unpack(configs, this.root.toFile());
+            ZipExtractor.extract(configs.toPath(), this.root);
             Utils.delete(configs);
         } else {
             fireSubProgressUnknown();
             fireTask(GetText.tr("Copying Overrides"));
-            ZipUtil.unpack(manifestFile, this.temp.resolve("manifest").toFile());
             Utils.copyDirectory(
                     this.temp.resolve("manifest/" + Optional.of(curseManifest.overrides).orElse("overrides")).toFile(),
                     this.root.toFile(), false);
@@ -1213,7 +1516,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                     .setUrl(attachment.url).downloadTo(root.resolve("instance.png")).withInstanceInstaller(this)
                     .withHttpClient(Network.createProgressClient(this));
 
-            this.setTotalBytes(imageDownload.getFilesize());
+            this.addTotalBytes(imageDownload.getFilesize());
             imageDownload.downloadFile();
         }
     }
@@ -1329,11 +1632,11 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
     protected void prepareFilesystem() throws Exception {
         if (isReinstall || isServer) {
             if (Files.isDirectory(this.root.resolve("bin"))) {
-                FileUtils.deleteDirectory(this.root.resolve("bin"));
+                Trash.put(this.root.resolve("bin"));
             }
 
             if (Files.isDirectory(this.root.resolve("config"))) {
-                FileUtils.deleteDirectory(this.root.resolve("config"));
+                Trash.put(this.root.resolve("config"));
             }
 
             if (isReinstall) {
@@ -1363,14 +1666,14 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                             true);
                 }
             } else {
-                FileUtils.deleteDirectory(this.root.resolve("mods"));
+                Trash.put(this.root.resolve("mods"));
 
                 if (this.version.minecraftVersion.coremods && Files.isDirectory(this.root.resolve("coremods"))) {
-                    FileUtils.deleteDirectory(this.root.resolve("coremods"));
+                    Trash.put(this.root.resolve("coremods"));
                 }
 
                 if (isReinstall && Files.isDirectory(this.root.resolve("jarmods"))) {
-                    FileUtils.deleteDirectory(this.root.resolve("jarmods"));
+                    Trash.put(this.root.resolve("jarmods"));
                 }
             }
 
@@ -1383,36 +1686,18 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
                     FileUtils.delete(this.root.resolve("resourcepacks/ResourcePack.zip"));
                 }
             } else {
-                FileUtils.deleteDirectory(this.root.resolve("libraries"));
+                Trash.put(this.root.resolve("libraries"));
             }
 
-            if (isReinstall && this.packVersion.deletes != null) {
-                Deletes deletes = this.packVersion.deletes;
-
-                if (deletes.hasFileDeletes()) {
-                    for (Delete delete : deletes.getFiles()) {
-                        if (delete.isAllowed()) {
-                            File file = delete.getFile(this.root.toFile());
-                            if (file.exists()) {
-                                Utils.delete(file);
-                            }
-                        }
-                    }
-                }
-
-                if (deletes.hasFolderDeletes()) {
-                    for (Delete delete : deletes.getFolders()) {
-                        if (delete.isAllowed()) {
-                            File file = delete.getFile(this.root.toFile());
-                            if (file.exists()) {
-                                Utils.delete(file);
-                            }
-                        }
-                    }
-                }
+            if (isReinstall) {
+                runDeletes();
             }
         }
 
+        createDirectories();
+    }
+
+    private void createDirectories() {
         // make some new directories
         Path[] directories;
         if (isServer) {
@@ -1434,6 +1719,36 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         }
     }
 
+    private void runDeletes() {
+        if (this.packVersion.deletes == null) {
+            return;
+        }
+
+        Deletes deletes = this.packVersion.deletes;
+
+        if (deletes.hasFileDeletes()) {
+            for (Delete delete : deletes.getFiles()) {
+                if (delete.isAllowed()) {
+                    File file = delete.getFile(this.root.toFile());
+                    if (file.exists()) {
+                        Utils.delete(file);
+                    }
+                }
+            }
+        }
+
+        if (deletes.hasFolderDeletes()) {
+            for (Delete delete : deletes.getFolders()) {
+                if (delete.isAllowed()) {
+                    File file = delete.getFile(this.root.toFile());
+                    if (file.exists()) {
+                        Utils.delete(file);
+                    }
+                }
+            }
+        }
+    }
+
     private void restoreSelectFiles() {
         if (savedReis) {
             Utils.copyDirectory(new File(this.temp.toFile(), "rei_minimap"),
@@ -1712,7 +2027,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         firePropertyChange("subprogressint", null, null);
     }
 
-    protected void addPercent(double percent) {
+    protected synchronized void addPercent(double percent) {
         this.percent = this.percent + percent;
         if (this.percent > 100.0) {
             this.percent = 100.0;
@@ -1720,7 +2035,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         fireProgress(this.percent);
     }
 
-    public void setSubPercent(double percent) {
+    public synchronized void setSubPercent(double percent) {
         this.subPercent = percent;
         if (this.subPercent > 100.0) {
             this.subPercent = 100.0;
@@ -1728,7 +2043,7 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
         fireSubProgress(this.subPercent);
     }
 
-    public void addSubPercent(double percent) {
+    public synchronized void addSubPercent(double percent) {
         this.subPercent = this.subPercent + percent;
         if (this.subPercent > 100.0) {
             this.subPercent = 100.0;
@@ -1741,14 +2056,23 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
     }
 
     @Override
-    public void setTotalBytes(long bytes) {
+    public synchronized void setTotalBytes(long bytes) {
         this.downloadedBytes = 0L;
         this.totalBytes = bytes;
         this.updateProgressBar();
     }
 
+    /**
+     * Adds to the number of bytes to download, for when several stages are downloading
+     * at once.
+     */
+    public synchronized void addTotalBytes(long bytes) {
+        this.totalBytes += bytes;
+        this.updateProgressBar();
+    }
+
     @Override
-    public void addDownloadedBytes(long bytes) {
+    public synchronized void addDownloadedBytes(long bytes) {
         this.downloadedBytes += bytes;
         this.updateProgressBar();
     }
@@ -1770,6 +2094,9 @@ public class InstanceInstaller extends SwingWorker<Boolean, Void> implements Net
     }
 
     private void hideSubProgressBar() {
-        fireSubProgress(-1);
+        // leave it up for anything else that's still going
+        if (this.stages == null || this.stages.getRunningCount() <= 1) {
+            fireSubProgress(-1);
+        }
     }
 }
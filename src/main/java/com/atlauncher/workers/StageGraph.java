@@ -0,0 +1,248 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.atlauncher.workers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import com.atlauncher.managers.LogManager;
+
+/**
+ * Runs a set of named stages, each one starting as soon as all the stages it depends
+ * on have finished, so stages that don't need each other run at the same time.
+ *
+ * Stages can only depend on stages added before them, so there can't be any cycles.
+ * Once cancelled, or once any stage fails, no more stages are started, unless
+ * {@link #continueAfterFailures()} is used, in which case a failed stage only
+ * stops the stages that depend on it.
+ *
+ * Stages added with {@link #addResumable(String, Stage, String...)} are recorded
+ * in the {@link Checkpoints} once they finish, and are skipped if they've already
+ * been recorded, so a run that was stopped part way can carry on where it left off.
+ */
+public final class StageGraph {
+    private final String name;
+    private final BooleanSupplier cancelled;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final AtomicInteger running = new AtomicInteger(0);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private Checkpoints checkpoints = null;
+    private boolean continueAfterFailures = false;
+
+    @FunctionalInterface
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    public interface Checkpoints {
+        boolean isComplete(String stage);
+
+        void complete(String stage);
+    }
+
+    public StageGraph(BooleanSupplier cancelled) {
+        this("Install", cancelled);
+    }
+
+    /**
+     * @param name      what the stages are for, used to name the threads and in the
+     *                  debug logs
+     * @param cancelled checked before starting each stage
+     */
+    public StageGraph(String name, BooleanSupplier cancelled) {
+        this.name = name;
+        this.cancelled = cancelled;
+    }
+
+    public StageGraph withCheckpoints(Checkpoints checkpoints) {
+        this.checkpoints = checkpoints;
+        return this;
+    }
+
+    /**
+     * Keeps starting stages which don't depend on a failed stage, rather than
+     * stopping everything after the first failure. Each failure is logged as it
+     * happens, and the first one is still thrown from {@link #run()} once
+     * everything that could run has.
+     */
+    public StageGraph continueAfterFailures() {
+        this.continueAfterFailures = true;
+        return this;
+    }
+
+    /**
+     * Adds a stage to the graph.
+     *
+     * @param name      the name of the stage, used by other stages to depend on it
+     * @param stage     what to run
+     * @param dependsOn the names of the stages which need to finish first
+     */
+    public StageGraph add(String name, Stage stage, String... dependsOn) {
+        return this.add(name, stage, false, dependsOn);
+    }
+
+    /**
+     * Adds a stage which only needs to run once, even if the whole graph is run again.
+     * This should only be used for stages whose results are kept somewhere that
+     * outlives the run, and that don't leave anything behind in memory that later
+     * stages need.
+     *
+     * @param name      the name of the stage, used by other stages to depend on it
+     * @param stage     what to run
+     * @param dependsOn the names of the stages which need to finish first
+     */
+    public StageGraph addResumable(String name, Stage stage, String... dependsOn) {
+        return this.add(name, stage, true, dependsOn);
+    }
+
+    private StageGraph add(String name, Stage stage, boolean resumable, String... dependsOn) {
+        if (this.nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Stage " + name + " has already been added");
+        }
+
+        for (String dependency : dependsOn) {
+            if (!this.nodes.containsKey(dependency)) {
+                throw new IllegalArgumentException(
+                        "Stage " + name + " depends on " + dependency + " which hasn't been added");
+            }
+        }
+
+        this.nodes.put(name, new Node(name, stage, resumable, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Gets how many stages are running right now.
+     */
+    public int getRunningCount() {
+        return this.running.get();
+    }
+
+    /**
+     * Runs all the stages and waits for them to finish.
+     *
+     * @return false if the stages were cancelled before they all ran
+     * @throws Exception the first exception thrown by a stage
+     */
+    public boolean run() throws Exception {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, this.name + "Stage-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long started = System.nanoTime();
+
+        try {
+            Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+
+            for (Node node : this.nodes.values()) {
+                List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+                node.dependsOn.forEach(dependency -> dependencies.add(futures.get(dependency)));
+
+                futures.put(node.name, CompletableFuture
+                        .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                        .thenRunAsync(() -> this.runNode(node), executor));
+            }
+
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException | CancellationException e) {
+                // the failure is thrown below
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        LogManager.debug(String.format("%s stages took %dms", this.name, (System.nanoTime() - started) / 1000000));
+
+        Throwable throwable = this.failure.get();
+        if (throwable instanceof Exception) {
+            throw (Exception) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+
+        return !this.cancelled.getAsBoolean();
+    }
+
+    private void runNode(Node node) {
+        if (this.cancelled.getAsBoolean() || (!this.continueAfterFailures && this.failure.get() != null)) {
+            throw new CancellationException("Skipping stage " + node.name);
+        }
+
+        boolean checkpointed = node.resumable && this.checkpoints != null;
+
+        if (checkpointed && this.checkpoints.isComplete(node.name)) {
+            LogManager.debug(String.format("Skipping %s stage %s as it's already been done", this.name.toLowerCase(),
+                    node.name), 3);
+            return;
+        }
+
+        long started = System.nanoTime();
+        this.running.incrementAndGet();
+
+        try {
+            node.stage.run();
+
+            // a stage can finish because it noticed it was cancelled, so only trust it if it wasn't
+            if (checkpointed && !this.cancelled.getAsBoolean()) {
+                this.checkpoints.complete(node.name);
+            }
+        } catch (Throwable t) {
+            this.failure.compareAndSet(null, t);
+
+            if (this.continueAfterFailures) {
+                LogManager.logStackTrace(String.format("%s stage %s failed", this.name, node.name), t);
+            }
+
+            throw new CompletionException(t);
+        } finally {
+            this.running.decrementAndGet();
+            LogManager.debug(String.format("%s stage %s took %dms", this.name, node.name,
+                    (System.nanoTime() - started) / 1000000));
+        }
+    }
+
+    private static final class Node {
+        private final String name;
+        private final Stage stage;
+        private final boolean resumable;
+        private final List<String> dependsOn;
+
+        private Node(String name, Stage stage, boolean resumable, List<String> dependsOn) {
+            this.name = name;
+            this.stage = stage;
+            this.resumable = resumable;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.atlauncher.utils.BackupStore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.zeroturnaround.zip.NameMapper;
+
+public class TestBackupStore {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatUnchangedFilesAreOnlyStoredOnce() throws Exception {
+        Path instance = tempDir.resolve("instance");
+        write(instance.resolve("saves/world/region/r.0.0.mca"), "region 0");
+        write(instance.resolve("saves/world/region/r.0.1.mca"), "region 1");
+        write(instance.resolve("mods/mod.jar"), "mod");
+        write(instance.resolve("logs/latest.log"), "log");
+
+        BackupStore store = new BackupStore(tempDir.resolve("store"));
+        BackupStore.Snapshot first = store.backup("instance", instance, name -> name.startsWith("logs") ? null : name);
+        assertEquals(3, countObjects());
+
+        // a file with the same contents as another is only stored once too
+        write(instance.resolve("saves/world/region/r.0.1.mca"), "changed");
+        write(instance.resolve("saves/world/region/r.1.1.mca"), "region 0");
+        Files.setLastModifiedTime(instance.resolve("saves/world/region/r.0.1.mca"), FileTime.fromMillis(1000));
+        BackupStore.Snapshot second = store.backup("instance", instance, name -> name);
+        assertEquals(5, countObjects());
+
+        List<BackupStore.Snapshot> snapshots = store.getSnapshots("instance");
+        assertEquals(2, snapshots.size());
+        assertEquals(second.id, snapshots.get(0).id);
+
+        Path restoredFirst = tempDir.resolve("restored-first");
+        store.restore(first, restoredFirst, name -> name);
+        assertEquals("region 1", read(restoredFirst.resolve("saves/world/region/r.0.1.mca")));
+        assertEquals("mod", read(restoredFirst.resolve("mods/mod.jar")));
+        assertFalse(Files.exists(restoredFirst.resolve("logs/latest.log")));
+        assertFalse(Files.exists(restoredFirst.resolve("saves/world/region/r.1.1.mca")));
+
+        Path restoredSecond = tempDir.resolve("restored-second");
+        store.restore(second, restoredSecond, name -> name);
+        assertEquals("changed", read(restoredSecond.resolve("saves/world/region/r.0.1.mca")));
+        assertEquals("region 0", read(restoredSecond.resolve("saves/world/region/r.1.1.mca")));
+        assertEquals("log", read(restoredSecond.resolve("logs/latest.log")));
+        assertEquals(FileTime.fromMillis(1000),
+                Files.getLastModifiedTime(restoredSecond.resolve("saves/world/region/r.0.1.mca")));
+    }
+
+    @Test
+    public void testThatFilesOnlyUsedByDeletedSnapshotsAreRemoved() throws Exception {
+        Path instance = tempDir.resolve("instance");
+        write(instance.resolve("saves/world/level.dat"), "first");
+
+        BackupStore store = new BackupStore(tempDir.resolve("store"));
+        BackupStore.Snapshot first = store.backup("instance", instance, name -> name);
+
+        write(instance.resolve("saves/world/level.dat"), "second");
+        Files.setLastModifiedTime(instance.resolve("saves/world/level.dat"), FileTime.fromMillis(1000));
+        store.backup("instance", instance, name -> name);
+        assertEquals(2, countObjects());
+
+        Files.delete(tempDir.resolve("store/snapshots/instance/" + first.id + ".json"));
+        store.backup("instance", instance, name -> name);
+        assertEquals(1, countObjects());
+
+        Path restored = tempDir.resolve("restored");
+        store.restore(store.getSnapshots("instance").get(0), restored, name -> name);
+        assertEquals("second", read(restored.resolve("saves/world/level.dat")));
+        assertTrue(Files.isDirectory(restored.resolve("saves/world")));
+    }
+
+    @Test
+    public void testThatFilesAddedSinceTheSnapshotAreRemovedOnRestore() throws Exception {
+        Path instance = tempDir.resolve("instance");
+        write(instance.resolve("saves/world/level.dat"), "level");
+        write(instance.resolve("options.txt"), "options");
+        NameMapper mapper = name -> name.startsWith("saves") || name.equals("options.txt") ? name : null;
+
+        BackupStore store = new BackupStore(tempDir.resolve("store"));
+        BackupStore.Snapshot snapshot = store.backup("instance", instance, mapper);
+
+        write(instance.resolve("saves/world/level.dat"), "changed");
+        write(instance.resolve("saves/world/region/r.0.0.mca"), "region");
+        write(instance.resolve("saves/new/level.dat"), "new");
+        write(instance.resolve("logs/latest.log"), "log");
+        write(instance.resolve("mods/mod.jar"), "mod");
+        write(instance.resolve("servers.dat"), "servers");
+
+        store.restore(snapshot, instance, mapper);
+        assertEquals("level", read(instance.resolve("saves/world/level.dat")));
+        assertEquals("options", read(instance.resolve("options.txt")));
+        assertFalse(Files.exists(instance.resolve("saves/world/region")));
+        assertFalse(Files.exists(instance.resolve("saves/new")));
+
+        // files the mapper skips or which aren't in a directory that was backed up are kept
+        assertEquals("log", read(instance.resolve("logs/latest.log")));
+        assertEquals("mod", read(instance.resolve("mods/mod.jar")));
+        assertEquals("servers", read(instance.resolve("servers.dat")));
+    }
+
+    @Test
+    public void testThatNothingIsChangedWhenRestoringASnapshotWithMissingFiles() throws Exception {
+        Path instance = tempDir.resolve("instance");
+        write(instance.resolve("saves/world/level.dat"), "level");
+        write(instance.resolve("saves/world/region/r.0.0.mca"), "region");
+
+        BackupStore store = new BackupStore(tempDir.resolve("store"));
+        BackupStore.Snapshot snapshot = store.backup("instance", instance, name -> name);
+
+        write(instance.resolve("saves/world/level.dat"), "changed");
+        write(instance.resolve("saves/new/level.dat"), "new");
+
+        try (Stream<Path> stream = Files.walk(tempDir.resolve("store/objects"))) {
+            Files.delete(stream.filter(Files::isRegularFile).findFirst().get());
+        }
+
+        assertThrows(IOException.class, () -> store.restore(snapshot, instance, name -> name));
+        assertEquals("changed", read(instance.resolve("saves/world/level.dat")));
+        assertEquals("region", read(instance.resolve("saves/world/region/r.0.0.mca")));
+        assertEquals("new", read(instance.resolve("saves/new/level.dat")));
+    }
+
+    @Test
+    public void testThatDeletingASnapshotOnlyRemovesFilesNoOtherSnapshotUses() throws Exception {
+        Path instance = tempDir.resolve("instance");
+        write(instance.resolve("saves/world/level.dat"), "first");
+        write(instance.resolve("options.txt"), "options");
+
+        BackupStore store = new BackupStore(tempDir.resolve("store"));
+        BackupStore.Snapshot first = store.backup("instance", instance, name -> name);
+
+        write(instance.resolve("saves/world/level.dat"), "second");
+        Files.setLastModifiedTime(instance.resolve("saves/world/level.dat"), FileTime.fromMillis(1000));
+        BackupStore.Snapshot second = store.backup("instance", instance, name -> name);
+        assertEquals(3, countObjects());
+
+        store.delete(first);
+        assertEquals(1, store.getSnapshots("instance").size());
+        assertEquals(second.id, store.getSnapshots("instance").get(0).id);
+        assertEquals(2, countObjects());
+
+        Path restored = tempDir.resolve("restored");
+        store.restore(second, restored, name -> name);
+        assertEquals("second", read(restored.resolve("saves/world/level.dat")));
+        assertEquals("options", read(restored.resolve("options.txt")));
+    }
+
+    private long countObjects() throws Exception {
+        try (Stream<Path> stream = Files.walk(tempDir.resolve("store/objects"))) {
+            return stream.filter(Files::isRegularFile).collect(Collectors.toList()).size();
+        }
+    }
+
+    private static void write(Path file, String contents) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
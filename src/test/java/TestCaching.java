@@ -0,0 +1,103 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.atlauncher.collection.Caching;
+
+import org.junit.jupiter.api.Test;
+
+public class TestCaching {
+    @Test
+    public void testThatTinyLFUStaysWithinItsSize() {
+        Caching.Cache<Integer, Integer> cache = Caching.newTinyLFU(100);
+
+        for (int i = 0; i < 10000; i++) {
+            cache.put(i, i);
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(9900, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void testThatTinyLFUKeepsFrequentlyUsedEntriesThroughAScan() {
+        Caching.Cache<Integer, Integer> cache = Caching.newTinyLFU(100);
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.put(i, i);
+                cache.get(i);
+            }
+        }
+
+        // a run of keys only seen once, which would empty an LRU cache, shouldn't push out the ones used all the time
+        for (int i = 1000; i < 1500; i++) {
+            cache.put(i, i);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertNotNull(cache.get(i), "frequently used key " + i + " was evicted");
+        }
+    }
+
+    @Test
+    public void testThatTinyLFUCountsHitsAndMisses() {
+        Caching.Cache<String, String> cache = Caching.newTinyLFU(10);
+
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(2, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void testThatTinyLFUCanBeUsedFromManyThreads() throws Exception {
+        Caching.Cache<Integer, Integer> cache = Caching.newTinyLFU(64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int thread = 0; thread < 8; thread++) {
+            final int seed = thread;
+            executor.execute(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    int key = (i * 31 + seed) % 500;
+                    Integer value = cache.get(key);
+
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else {
+                        assertEquals(key, (int) value);
+                    }
+                }
+            });
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(64, cache.size());
+    }
+}
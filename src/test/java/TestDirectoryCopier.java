@@ -0,0 +1,113 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import com.atlauncher.utils.DirectoryCopier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestDirectoryCopier {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatDirectoriesAreCopied() throws Exception {
+        Path from = tempDir.resolve("from");
+        for (int i = 0; i < 200; i++) {
+            write(from.resolve("saves/world" + (i % 5) + "/region/r." + i + ".mca"), "region " + i);
+        }
+        Files.createDirectories(from.resolve("empty"));
+
+        Path to = tempDir.resolve("to");
+        new DirectoryCopier(from, to).copy();
+
+        for (int i = 0; i < 200; i++) {
+            Path copied = to.resolve("saves/world" + (i % 5) + "/region/r." + i + ".mca");
+            assertEquals("region " + i, read(copied));
+            assertFalse(Files.isSameFile(copied, from.resolve("saves/world" + (i % 5) + "/region/r." + i + ".mca")));
+        }
+        assertTrue(Files.isDirectory(to.resolve("empty")));
+    }
+
+    @Test
+    public void testThatExistingFilesAreReplacedRatherThanWrittenOver() throws Exception {
+        Path from = tempDir.resolve("from");
+        write(from.resolve("config/mod.cfg"), "new");
+
+        Path stored = tempDir.resolve("stored.cfg");
+        write(stored, "stored");
+
+        Path to = tempDir.resolve("to");
+        Files.createDirectories(to.resolve("config"));
+        Files.createLink(to.resolve("config/mod.cfg"), stored);
+
+        new DirectoryCopier(from, to).copy();
+
+        assertEquals("new", read(to.resolve("config/mod.cfg")));
+        assertEquals("stored", read(stored));
+    }
+
+    @Test
+    public void testThatIdenticalFilesAreSkipped() throws Exception {
+        Path from = tempDir.resolve("from");
+        write(from.resolve("same.cfg"), "from");
+        write(from.resolve("changed.cfg"), "from");
+
+        Path to = tempDir.resolve("to");
+        new DirectoryCopier(from, to).copy();
+
+        // same size and modified time, so it's treated as unchanged even though the contents differ
+        write(to.resolve("same.cfg"), "edit");
+        Files.setLastModifiedTime(to.resolve("same.cfg"), Files.getLastModifiedTime(from.resolve("same.cfg")));
+        write(to.resolve("changed.cfg"), "edit");
+        Files.setLastModifiedTime(to.resolve("changed.cfg"), FileTime.fromMillis(0));
+
+        new DirectoryCopier(from, to).skipIdentical().copy();
+
+        assertEquals("edit", read(to.resolve("same.cfg")));
+        assertEquals("from", read(to.resolve("changed.cfg")));
+    }
+
+    @Test
+    public void testThatFilesCanBeLinked() throws Exception {
+        Path from = tempDir.resolve("from");
+        write(from.resolve("mods/mod.jar"), "mod");
+
+        Path to = tempDir.resolve("to");
+        new DirectoryCopier(from, to).link().copy();
+
+        assertTrue(Files.isSameFile(from.resolve("mods/mod.jar"), to.resolve("mods/mod.jar")));
+    }
+
+    private static void write(Path file, String contents) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import com.atlauncher.utils.Hashing;
+import com.sangupta.murmur.Murmur2;
+
+import org.junit.jupiter.api.Test;
+
+public class TestHashing {
+    private static final byte[] CONTENTS = "public class Test {\n\tint a = 1;\r\n}\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testThatDigestingChannelMatchesHashingTheBytes() throws Exception {
+        Hashing.DigestingChannel sha1Channel = Hashing
+                .digesting(Channels.newChannel(new ByteArrayInputStream(CONTENTS)), "SHA-1");
+        Hashing.DigestingChannel md5Channel = Hashing
+                .digesting(Channels.newChannel(new ByteArrayInputStream(CONTENTS)), "MD5");
+
+        // read in small chunks so the digest is updated in pieces
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        while (sha1Channel.read(buffer) != -1) {
+            buffer.clear();
+        }
+        while (md5Channel.read(buffer) != -1) {
+            buffer.clear();
+        }
+
+        assertEquals(Hashing.sha1(CONTENTS), sha1Channel.hash());
+        assertEquals(Hashing.md5(CONTENTS), md5Channel.hash());
+    }
+
+    @Test
+    public void testThatMurmurMatchesTheReferenceImplementation() throws Exception {
+        Random random = new Random(1L);
+        Path file = Files.createTempFile("murmur", ".jar");
+
+        try {
+            // small sizes cover every tail length, and the large one crosses buffer boundaries
+            int[] sizes = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 31, 32, 33, 1000, 200000 };
+
+            for (int size : sizes) {
+                byte[] contents = new byte[size];
+                random.nextBytes(contents);
+
+                // make sure there's plenty of whitespace to be taken out
+                for (int i = 0; i < size; i += 3) {
+                    contents[i] = new byte[] { 9, 10, 13, 32 }[random.nextInt(4)];
+                }
+
+                Files.write(file, contents);
+
+                ByteArrayOutputStream filtered = new ByteArrayOutputStream();
+                for (byte b : contents) {
+                    if (b != 9 && b != 10 && b != 13 && b != 32) {
+                        filtered.write(b);
+                    }
+                }
+                byte[] filteredBytes = filtered.toByteArray();
+
+                assertEquals(Murmur2.hash(filteredBytes, filteredBytes.length, 1L), Hashing.murmur(file),
+                        "fingerprint of " + size + " bytes");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testThatHashingFilesMatchesHashingTheirBytes() throws Exception {
+        Random random = new Random(2L);
+        Path smallFile = Files.createTempFile("hashing", ".jar");
+        Path largeFile = Files.createTempFile("hashing", ".jar");
+
+        try {
+            byte[] small = new byte[300000];
+            random.nextBytes(small);
+            Files.write(smallFile, small);
+
+            // big enough to be memory mapped
+            byte[] large = new byte[33 * 1024 * 1024];
+            random.nextBytes(large);
+            Files.write(largeFile, large);
+
+            assertEquals(Hashing.sha1(small), Hashing.sha1(smallFile));
+            assertEquals(Hashing.md5(small), Hashing.md5(smallFile));
+            assertEquals(Hashing.sha1(large), Hashing.sha1(largeFile));
+
+            Map<Path, Hashing.HashCode> hashes = Hashing.sha1All(Arrays.asList(smallFile, largeFile, smallFile));
+            assertEquals(2, hashes.size());
+            assertEquals(Hashing.sha1(small), hashes.get(smallFile));
+            assertEquals(Hashing.sha1(large), hashes.get(largeFile));
+        } finally {
+            Files.delete(smallFile);
+            Files.delete(largeFile);
+        }
+    }
+}
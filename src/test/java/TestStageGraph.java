@@ -0,0 +1,134 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.atlauncher.workers.InstallJournal;
+import com.atlauncher.workers.StageGraph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestStageGraph {
+    @Test
+    public void testThatStagesRunAfterTheirDependencies() throws Exception {
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        boolean finished = new StageGraph(() -> false).add("a", () -> ran.add("a")).add("b", () -> ran.add("b"))
+                .add("c", () -> ran.add("c"), "a", "b").add("d", () -> ran.add("d"), "c").run();
+
+        assertTrue(finished);
+        assertEquals(4, ran.size());
+        assertTrue(ran.indexOf("c") > ran.indexOf("a"));
+        assertTrue(ran.indexOf("c") > ran.indexOf("b"));
+        assertEquals("d", ran.get(3));
+    }
+
+    @Test
+    public void testThatIndependentStagesRunAtTheSameTime() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+
+        // each stage waits for the other to start, so this only finishes if they run together
+        boolean finished = new StageGraph(() -> false).add("a", () -> {
+            latch.countDown();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }).add("b", () -> {
+            latch.countDown();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }).run();
+
+        assertTrue(finished);
+    }
+
+    @Test
+    public void testThatAFailedStageStopsItsDependentsAndIsThrown() {
+        AtomicBoolean dependentRan = new AtomicBoolean(false);
+
+        Exception exception = assertThrows(IllegalStateException.class, () -> new StageGraph(() -> false)
+                .add("a", () -> {
+                    throw new IllegalStateException("failed");
+                }).add("b", () -> dependentRan.set(true), "a").run());
+
+        assertEquals("failed", exception.getMessage());
+        assertFalse(dependentRan.get());
+    }
+
+    @Test
+    public void testThatOtherStagesStillRunAfterAFailureWhenContinuing() {
+        CountDownLatch failed = new CountDownLatch(1);
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        // c only finishes once a has failed, so b can only start after the failure
+        Exception exception = assertThrows(IllegalStateException.class, () -> new StageGraph(() -> false)
+                .continueAfterFailures().add("a", () -> {
+                    failed.countDown();
+                    throw new IllegalStateException("failed");
+                }).add("c", () -> assertTrue(failed.await(10, TimeUnit.SECONDS)))
+                .add("b", () -> ran.add("b"), "c").add("d", () -> ran.add("d"), "a").run());
+
+        assertEquals("failed", exception.getMessage());
+        assertEquals(Arrays.asList("b"), ran);
+    }
+
+    @Test
+    public void testThatNothingRunsOnceCancelled() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        AtomicBoolean dependentRan = new AtomicBoolean(false);
+
+        boolean finished = new StageGraph(cancelled::get).add("a", () -> cancelled.set(true))
+                .add("b", () -> dependentRan.set(true), "a").run();
+
+        assertFalse(finished);
+        assertFalse(dependentRan.get());
+    }
+
+    @Test
+    public void testThatStagesCanOnlyDependOnStagesAlreadyAdded() {
+        assertThrows(IllegalArgumentException.class, () -> new StageGraph(() -> false).add("a", () -> {
+        }, "b"));
+    }
+
+    @Test
+    public void testThatFinishedResumableStagesAreSkipped(@TempDir Path tempDir) throws Exception {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        InstallJournal journal = new InstallJournal(tempDir, "pack|1.0");
+        journal.complete("a");
+
+        new StageGraph(() -> false).withCheckpoints(journal).addResumable("a", () -> ran.add("a"))
+                .addResumable("b", () -> ran.add("b"), "a").add("c", () -> ran.add("c"), "b").run();
+
+        assertEquals(Arrays.asList("b", "c"), ran);
+
+        // the journal is read back from disk, but only for the same install
+        assertTrue(new InstallJournal(tempDir, "pack|1.0").isComplete("b"));
+        assertFalse(new InstallJournal(tempDir, "pack|1.0").isComplete("c"));
+        assertFalse(new InstallJournal(tempDir, "pack|2.0").isComplete("a"));
+        assertFalse(new InstallJournal(tempDir, "pack|1.0").isComplete("a"));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.atlauncher.data.json.Configs;
+import com.atlauncher.data.json.Library;
+import com.atlauncher.data.json.Mod;
+import com.atlauncher.data.json.ModType;
+import com.atlauncher.data.json.Version;
+import com.atlauncher.data.json.VersionDiff;
+
+import org.junit.jupiter.api.Test;
+
+public class TestVersionDiff {
+    private static Mod mod(String name, String md5, ModType type) {
+        Mod mod = new Mod();
+        mod.name = name;
+        mod.file = name + ".jar";
+        mod.md5 = md5;
+        mod.type = type;
+        return mod;
+    }
+
+    private static Version version(String configsSha1, Mod... mods) {
+        Version version = new Version();
+        version.minecraft = "1.12.2";
+        version.mods = Arrays.asList(mods);
+        version.configs = new Configs();
+        version.configs.sha1 = configsSha1;
+        return version;
+    }
+
+    @Test
+    public void testThatOnlyChangedModsAreDetected() {
+        Mod unchanged = mod("A", "aaaa", ModType.mods);
+        Mod updated = mod("B", "bbbb", ModType.mods);
+
+        VersionDiff diff = new VersionDiff(version("1", mod("A", "AAAA", ModType.mods), mod("B", "cccc", ModType.mods)),
+                version("1", unchanged, updated));
+
+        assertTrue(diff.isModUnchanged(unchanged));
+        assertFalse(diff.isModUnchanged(updated));
+        assertFalse(diff.isModUnchanged(mod("C", "dddd", ModType.mods)));
+        assertTrue(diff.wasModInPreviousVersion("b"));
+        assertFalse(diff.haveConfigsChanged());
+        assertTrue(diff.canUpdateIncrementally(Collections.singletonList(updated)));
+    }
+
+    @Test
+    public void testThatConfigChangesAreDetected() {
+        assertTrue(new VersionDiff(version("1"), version("2")).haveConfigsChanged());
+        assertTrue(new VersionDiff(version(null), version(null)).haveConfigsChanged());
+    }
+
+    @Test
+    public void testThatBigChangesNeedAFullInstall() {
+        Version from = version("1");
+        Version to = version("1");
+        to.minecraft = "1.16.3";
+
+        assertFalse(new VersionDiff(from, to).canUpdateIncrementally(Collections.emptyList()));
+
+        Version withLibrary = version("1");
+        Library library = new Library();
+        library.file = "library.jar";
+        withLibrary.libraries = Collections.singletonList(library);
+
+        assertFalse(new VersionDiff(version("1"), withLibrary).canUpdateIncrementally(Collections.emptyList()));
+
+        // extracted mods can't be removed again on their own
+        assertFalse(new VersionDiff(version("1"), version("1"))
+                .canUpdateIncrementally(Collections.singletonList(mod("A", "aaaa", ModType.extract))));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.atlauncher.utils.ZipCompressor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestZipCompressor {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatEntriesAreWrittenInOrderWithTheRightMethod() throws Exception {
+        byte[] random = new byte[100000];
+        new Random(1).nextBytes(random);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+
+        Path folder = tempDir.resolve("folder");
+        Files.createDirectories(folder.resolve("config/empty"));
+        Files.createDirectories(folder.resolve("mods"));
+        Files.createDirectories(folder.resolve("logs"));
+        Files.write(folder.resolve("config/options.txt"), text.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.resolve("mods/mod.jar"), random);
+        Files.write(folder.resolve("random.bin"), random);
+        Files.write(folder.resolve("logs/latest.log"), "log".getBytes(StandardCharsets.UTF_8));
+
+        Path output = tempDir.resolve("output.zip");
+        try (ZipCompressor zip = new ZipCompressor(output)) {
+            zip.add("manifest.json", "{}".getBytes(StandardCharsets.UTF_8));
+            zip.addDirectory(folder, name -> name.startsWith("logs/") ? null : "overrides/" + name);
+            zip.addFile("extra.txt", folder.resolve("config/options.txt"));
+        }
+
+        try (ZipFile zip = new ZipFile(output.toFile())) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+
+            assertEquals("manifest.json", names.get(0));
+            assertEquals("extra.txt", names.get(names.size() - 1));
+            assertEquals("{}", new String(read(zip, "manifest.json"), StandardCharsets.UTF_8));
+
+            assertNull(zip.getEntry("overrides/logs/latest.log"));
+            assertEquals(true, zip.getEntry("overrides/config/empty/").isDirectory());
+
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("overrides/config/options.txt").getMethod());
+            assertArrayEquals(Files.readAllBytes(folder.resolve("config/options.txt")),
+                    read(zip, "overrides/config/options.txt"));
+            assertArrayEquals(Files.readAllBytes(folder.resolve("config/options.txt")), read(zip, "extra.txt"));
+
+            // already compressed files are stored as is
+            assertEquals(ZipEntry.STORED, zip.getEntry("overrides/mods/mod.jar").getMethod());
+            assertArrayEquals(random, read(zip, "overrides/mods/mod.jar"));
+
+            // and so are files that don't get any smaller when deflated
+            assertEquals(ZipEntry.STORED, zip.getEntry("overrides/random.bin").getMethod());
+            assertArrayEquals(random, read(zip, "overrides/random.bin"));
+        }
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream stream = zip.getInputStream(zip.getEntry(name))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import com.atlauncher.utils.ZipExtractor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestZipExtractor {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatAllEntriesAreExtracted() throws Exception {
+        Path zip = tempDir.resolve("configs.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("config/"));
+            out.closeEntry();
+
+            for (int i = 0; i < 5000; i++) {
+                putEntry(out, "config/mod" + (i % 50) + "/file" + i + ".cfg", "value=" + i);
+            }
+
+            putEntry(out, "skipped.txt", "skipped");
+        }
+
+        Path to = tempDir.resolve("extracted");
+        ZipExtractor.extract(zip, to, name -> name.equals("skipped.txt") ? null : name);
+
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("value=" + i, new String(
+                    Files.readAllBytes(to.resolve("config/mod" + (i % 50) + "/file" + i + ".cfg")),
+                    StandardCharsets.UTF_8));
+        }
+
+        assertFalse(Files.exists(to.resolve("skipped.txt")));
+    }
+
+    @Test
+    public void testThatExistingFilesAreReplacedRatherThanWrittenOver() throws Exception {
+        Path zip = tempDir.resolve("configs.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            putEntry(out, "options.txt", "new");
+        }
+
+        Path stored = tempDir.resolve("stored.txt");
+        Files.write(stored, "stored".getBytes(StandardCharsets.UTF_8));
+
+        Path to = tempDir.resolve("extracted");
+        Files.createDirectories(to);
+        Files.createLink(to.resolve("options.txt"), stored);
+
+        ZipExtractor.extract(zip, to);
+
+        assertEquals("new", new String(Files.readAllBytes(to.resolve("options.txt")), StandardCharsets.UTF_8));
+        assertEquals("stored", new String(Files.readAllBytes(stored), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testThatEntriesOutsideOfTheDirectoryAreRejected() throws Exception {
+        Path zip = tempDir.resolve("evil.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            putEntry(out, "../evil.txt", "evil");
+        }
+
+        assertThrows(ZipException.class, () -> ZipExtractor.extract(zip, tempDir.resolve("extracted")));
+        assertFalse(Files.exists(tempDir.resolve("evil.txt")));
+    }
+
+    private static void putEntry(ZipOutputStream out, String name, String contents) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(contents.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * ATLauncher - https://github.com/ATLauncher/ATLauncher
+ * Copyright (C) 2013-2020 ATLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import com.atlauncher.utils.ZipMerger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestZipMerger {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatEntriesAreCopiedAndTheFirstOneWins() throws Exception {
+        byte[] random = new byte[100000];
+        new Random(1).nextBytes(random);
+
+        Path first = tempDir.resolve("first.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(first))) {
+            // deflated entries are written with a data descriptor after them
+            putEntry(zip, "a/", new byte[0]);
+            putEntry(zip, "a/One.class", "one".getBytes(StandardCharsets.UTF_8));
+            putEntry(zip, "random.bin", random);
+        }
+
+        Path second = tempDir.resolve("second.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(second))) {
+            putEntry(zip, "a/One.class", "not one".getBytes(StandardCharsets.UTF_8));
+            putStoredEntry(zip, "b/Two.class", "two".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Path merged = tempDir.resolve("merged.jar");
+        try (ZipMerger merger = new ZipMerger(merged)) {
+            merger.add("launch.properties", "main=Test\n".getBytes(StandardCharsets.UTF_8));
+            merger.addAll(first);
+            merger.addAll(second);
+        }
+
+        try (ZipFile zip = new ZipFile(merged.toFile())) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+
+            assertEquals(5, names.size());
+            assertEquals("launch.properties", names.get(0));
+            assertEquals("main=Test\n", new String(read(zip, "launch.properties"), StandardCharsets.UTF_8));
+            assertEquals("one", new String(read(zip, "a/One.class"), StandardCharsets.UTF_8));
+            assertEquals("two", new String(read(zip, "b/Two.class"), StandardCharsets.UTF_8));
+            assertEquals(ZipEntry.STORED, zip.getEntry("b/Two.class").getMethod());
+            assertArrayEquals(random, read(zip, "random.bin"));
+        }
+    }
+
+    @Test
+    public void testThatZip64IsUsedForMoreThan65535Entries() throws Exception {
+        Path merged = tempDir.resolve("merged.zip");
+        try (ZipMerger merger = new ZipMerger(merged)) {
+            for (int i = 0; i < 70000; i++) {
+                merger.add("file" + i + ".txt", Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        try (ZipFile zip = new ZipFile(merged.toFile())) {
+            assertEquals(70000, zip.size());
+            assertEquals("0", new String(read(zip, "file0.txt"), StandardCharsets.UTF_8));
+            assertEquals("69999", new String(read(zip, "file69999.txt"), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] contents) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(contents);
+        zip.closeEntry();
+    }
+
+    private static void putStoredEntry(ZipOutputStream zip, String name, byte[] contents) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(contents.length);
+        entry.setCrc(crc.getValue());
+
+        zip.putNextEntry(entry);
+        zip.write(contents);
+        zip.closeEntry();
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream stream = zip.getInputStream(zip.getEntry(name))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            copy(stream, bytes);
+            return bytes.toByteArray();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}